@@ -308,14 +308,12 @@ public abstract class Command
         //cooldown check
         if(cooldown>0)
         {
-            String key = getCooldownKey(event);
-            int remaining = event.getClient().getRemainingCooldown(key);
+            int remaining = event.getClient().applyCooldown(this, event);
             if(remaining>0)
             {
                 terminate(event, getCooldownError(event, remaining));
                 return;
             }
-            else event.getClient().applyCooldown(key, cooldown);
         }
         
         // run
@@ -469,6 +467,16 @@ public abstract class Command
         return cooldown;
     }
 
+    /**
+     * Gets the {@link com.jagrosh.jdautilities.command.Command#cooldownScope Command.cooldownScope} for the Command.
+     *
+     * @return The cooldownScope for the Command
+     */
+    public CooldownScope getCooldownScope()
+    {
+        return cooldownScope;
+    }
+
     /**
      * Gets the {@link com.jagrosh.jdautilities.command.Command#userPermissions Command.userPermissions} for the Command.
      *
@@ -727,6 +735,8 @@ public abstract class Command
      * Cooldown keys are generated via {@link com.jagrosh.jdautilities.command.Command#getCooldownKey(CommandEvent)
      * Command#getCooldownKey(CommandEvent)} using 1-2 Snowflake ID's corresponding to the name
      * (IE: {@code USER_CHANNEL} uses the ID's of the User and the Channel from the CommandEvent).
+     * The {@link com.jagrosh.jdautilities.command.CommandClient CommandClient} keeps a Command's own
+     * cooldowns without building these keys, but its String cooldown methods still accept them.
      *
      * <p>However, the issue with generalizing and generating like this is that the command may
      * be called in a non-guild environment, causing errors internally.
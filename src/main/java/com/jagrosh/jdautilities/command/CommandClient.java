@@ -15,10 +15,12 @@
  */
 package com.jagrosh.jdautilities.command;
 
+import com.jagrosh.jdautilities.commons.utils.LatencyHistogram;
 import net.dv8tion.jda.api.entities.Guild;
 
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Function;
 
@@ -257,6 +259,11 @@ public interface CommandClient
     
     /**
      * Gets the {@link java.time.OffsetDateTime OffsetDateTime} that the specified cooldown expires.
+     *
+     * <p>A name made by {@link com.jagrosh.jdautilities.command.Command#getCooldownKey(CommandEvent)
+     * Command#getCooldownKey(CommandEvent)} for a Command added to this client refers to that
+     * Command's cooldown, the same one {@link #applyCooldown(Command, CommandEvent)} applies.
+     * This goes for {@link #getRemainingCooldown(String)} and {@link #applyCooldown(String, int)} too.
      * 
      * @param  name
      *         The cooldown name
@@ -285,6 +292,24 @@ public interface CommandClient
      */
     void applyCooldown(String name, int seconds);
     
+    /**
+     * Puts a {@link com.jagrosh.jdautilities.command.Command Command} on cooldown for the
+     * {@link com.jagrosh.jdautilities.command.Command.CooldownScope CooldownScope} the event falls in,
+     * unless it already is.
+     *
+     * <p>Checking and applying the cooldown happen in one step, so a Command run twice at the same time
+     * can't get past its cooldown both times.
+     *
+     * @param  command
+     *         The Command being run
+     * @param  event
+     *         The CommandEvent the Command is being run with
+     *
+     * @return The number of seconds remaining if the Command was already on cooldown,
+     *         or {@code 0} if it has just been put on cooldown
+     */
+    int applyCooldown(Command command, CommandEvent event);
+    
     /**
      * Cleans up expired cooldowns to reduce memory.
      */
@@ -468,6 +493,27 @@ public interface CommandClient
      */
     <M extends GuildSettingsManager> M getSettingsManager();
     
+    /**
+     * Gets how long each {@link com.jagrosh.jdautilities.command.Command Command} has taken to run, by name.
+     *
+     * <p>This only includes the {@link com.jagrosh.jdautilities.command.Command#execute(CommandEvent) execute}
+     * call itself, not anything it queued to finish later.
+     *
+     * @return An unmodifiable view of the run times of each Command that has been run
+     */
+    Map<String, LatencyHistogram> getCommandLatencies();
+
+    /**
+     * Gets how long commands waited between being received and starting to run.
+     *
+     * <p>This is always close to zero unless the client was built with a
+     * {@link com.jagrosh.jdautilities.command.CommandClientBuilder#setCommandExecutor(java.util.concurrent.Executor, int)
+     * command executor}.
+     *
+     * @return The wait times of every Command
+     */
+    LatencyHistogram getCommandQueueLatency();
+
     /**
      * Shuts down internals of the Command Client, such as the threadpool and guild settings manager
      */
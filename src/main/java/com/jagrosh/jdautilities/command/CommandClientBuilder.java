@@ -21,6 +21,7 @@ import java.util.function.Consumer;
 
 import com.jagrosh.jdautilities.command.impl.AnnotatedModuleCompilerImpl;
 import com.jagrosh.jdautilities.command.impl.CommandClientImpl;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 import net.dv8tion.jda.api.OnlineStatus;
 import net.dv8tion.jda.api.entities.Activity;
@@ -54,6 +55,8 @@ public class CommandClientBuilder
     private Consumer<CommandEvent> helpConsumer;
     private String helpWord;
     private ScheduledExecutorService executor;
+    private Executor commandExecutor;
+    private int maxQueuedCommands = 0;
     private int linkedCacheSize = 0;
     private AnnotatedModuleCompiler compiler = new AnnotatedModuleCompilerImpl();
     private GuildSettingsManager manager = null;
@@ -70,7 +73,8 @@ public class CommandClientBuilder
     {
         CommandClient client = new CommandClientImpl(ownerId, coOwnerIds, prefix, altprefix, activity, status, serverInvite,
                                                      success, warning, error, carbonKey, botsKey, new ArrayList<>(commands), useHelp,
-                                                     shutdownAutomatically, helpConsumer, helpWord, executor, linkedCacheSize, compiler, manager);
+                                                     shutdownAutomatically, helpConsumer, helpWord, executor, linkedCacheSize, compiler, manager,
+                                                     commandExecutor, maxQueuedCommands);
         if(listener!=null)
             client.setListener(listener);
         return client;
@@ -444,6 +448,28 @@ public class CommandClientBuilder
         return this;
     }
     
+    /**
+     * Sets an {@link java.util.concurrent.Executor Executor} that commands are run on, instead of on the
+     * thread that received the message.
+     *
+     * <p>Commands from the same {@link net.dv8tion.jda.api.entities.Guild Guild} (or the same direct message
+     * channel) still run one at a time, in the order they were sent. If a Guild already has as many commands
+     * waiting as allowed, further commands are answered with a warning instead of being run.
+     *
+     * @param  commandExecutor
+     *         The Executor to run commands on, or {@code null} to run them on the thread that received the message
+     * @param  maxQueuedPerGuild
+     *         How many commands each Guild can have waiting behind the one that is running
+     *
+     * @return This builder
+     */
+    public CommandClientBuilder setCommandExecutor(Executor commandExecutor, int maxQueuedPerGuild)
+    {
+        this.commandExecutor = commandExecutor;
+        this.maxQueuedCommands = maxQueuedPerGuild;
+        return this;
+    }
+    
     /**
      * Sets the Command Client to shut down internals automatically when a 
      * {@link net.dv8tion.jda.api.events.ShutdownEvent ShutdownEvent} is received.
@@ -459,8 +485,8 @@ public class CommandClientBuilder
     }
     
     /**
-     * Sets the internal size of the client's {@link com.jagrosh.jdautilities.commons.utils.FixedSizeCache FixedSizeCache}
-     * used for caching and pairing the bot's response {@link net.dv8tion.jda.api.entities.Message Message}s with
+     * Sets the internal size of the client's {@link com.jagrosh.jdautilities.commons.utils.LinkedReplyCache LinkedReplyCache}
+     * used for caching and pairing the IDs of the bot's response {@link net.dv8tion.jda.api.entities.Message Message}s with
      * the calling Message's ID.
      *
      * <p>Higher cache size means that decay of cache contents will most likely occur later, allowing the deletion of
@@ -17,13 +17,15 @@ package com.jagrosh.jdautilities.command.impl;
 
 import com.jagrosh.jdautilities.command.*;
 import com.jagrosh.jdautilities.command.Command.Category;
-import com.jagrosh.jdautilities.commons.utils.FixedSizeCache;
+import com.jagrosh.jdautilities.commons.utils.LatencyHistogram;
+import com.jagrosh.jdautilities.commons.utils.LinkedReplyCache;
 import com.jagrosh.jdautilities.commons.utils.SafeIdUtil;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.OnlineStatus;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.*;
 import net.dv8tion.jda.api.entities.channel.ChannelType;
+import net.dv8tion.jda.api.entities.channel.middleman.MessageChannel;
 import net.dv8tion.jda.api.events.GenericEvent;
 import net.dv8tion.jda.api.events.guild.GuildJoinEvent;
 import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
@@ -42,10 +44,13 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.Reader;
 import java.time.OffsetDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -81,9 +86,10 @@ public class CommandClientImpl implements CommandClient, EventListener
     private final String warning;
     private final String error;
     private final String botsKey, carbonKey;
-    private final HashMap<String,OffsetDateTime> cooldowns;
-    private final HashMap<String,Integer> uses;
-    private final FixedSizeCache<Long, Set<Message>> linkMap;
+    private final Cooldowns<String> cooldowns;
+    private final Cooldowns<CooldownKey> commandCooldowns;
+    private final Map<String,LongAdder> uses;
+    private final LinkedReplyCache linkMap;
     private final boolean useHelp;
     private final boolean shutdownAutomatically;
     private final Consumer<CommandEvent> helpConsumer;
@@ -91,15 +97,21 @@ public class CommandClientImpl implements CommandClient, EventListener
     private final ScheduledExecutorService executor;
     private final AnnotatedModuleCompiler compiler;
     private final GuildSettingsManager manager;
+    private final GuildCommandExecutor commandExecutor;
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final LatencyHistogram queueLatency = new LatencyHistogram();
+    private final Map<Long, GuildPrefixes> guildPrefixes = new ConcurrentHashMap<>();
 
     private String textPrefix;
+    private volatile PrefixMatcher prefixMatcher; // built once the bot's own ID is known
     private CommandListener listener = null;
     private int totalGuilds;
 
     public CommandClientImpl(String ownerId, String[] coOwnerIds, String prefix, String altprefix, Activity activity, OnlineStatus status, String serverInvite,
                              String success, String warning, String error, String carbonKey, String botsKey, ArrayList<Command> commands,
                              boolean useHelp, boolean shutdownAutomatically, Consumer<CommandEvent> helpConsumer, String helpWord, ScheduledExecutorService executor,
-                             int linkedCacheSize, AnnotatedModuleCompiler compiler, GuildSettingsManager manager)
+                             int linkedCacheSize, AnnotatedModuleCompiler compiler, GuildSettingsManager manager,
+                             Executor commandExecutor, int maxQueuedCommands)
     {
         Checks.check(ownerId != null, "Owner ID was set null or not set! Please provide an User ID to register as the owner!");
 
@@ -132,15 +144,17 @@ public class CommandClientImpl implements CommandClient, EventListener
         this.botsKey = botsKey;
         this.commandIndex = new HashMap<>();
         this.commands = new ArrayList<>();
-        this.cooldowns = new HashMap<>();
-        this.uses = new HashMap<>();
-        this.linkMap = linkedCacheSize>0 ? new FixedSizeCache<>(linkedCacheSize) : null;
+        this.cooldowns = new Cooldowns<>();
+        this.commandCooldowns = new Cooldowns<>();
+        this.uses = new ConcurrentHashMap<>();
+        this.linkMap = linkedCacheSize>0 ? new LinkedReplyCache(linkedCacheSize) : null;
         this.useHelp = useHelp;
         this.shutdownAutomatically = shutdownAutomatically;
         this.helpWord = helpWord==null ? "help" : helpWord;
         this.executor = executor==null ? Executors.newSingleThreadScheduledExecutor() : executor;
         this.compiler = compiler;
         this.manager = manager;
+        this.commandExecutor = commandExecutor==null ? null : new GuildCommandExecutor(commandExecutor, maxQueuedCommands);
         this.helpConsumer = helpConsumer==null ? (event) -> {
                 StringBuilder builder = new StringBuilder("**"+event.getSelfUser().getName()+"** commands:\n");
                 Category category = null;
@@ -206,37 +220,37 @@ public class CommandClientImpl implements CommandClient, EventListener
     @Override
     public OffsetDateTime getCooldown(String name)
     {
-        return cooldowns.get(name);
+        long remaining = remaining(name);
+        return remaining == 0 ? null : OffsetDateTime.now().plusNanos(remaining);
     }
 
     @Override
     public int getRemainingCooldown(String name)
     {
-        if(cooldowns.containsKey(name))
-        {
-            int time = (int) Math.ceil(OffsetDateTime.now().until(cooldowns.get(name), ChronoUnit.MILLIS) / 1000D);
-            if(time<=0)
-            {
-                cooldowns.remove(name);
-                return 0;
-            }
-            return time;
-        }
-        return 0;
+        return toSeconds(remaining(name));
     }
 
     @Override
     public void applyCooldown(String name, int seconds)
     {
-        cooldowns.put(name, OffsetDateTime.now().plusSeconds(seconds));
+        CooldownKey key = parseCooldownKey(name);
+        if(key != null)
+            commandCooldowns.apply(key, TimeUnit.SECONDS.toNanos(seconds));
+        else
+            cooldowns.apply(name, TimeUnit.SECONDS.toNanos(seconds));
+    }
+
+    @Override
+    public int applyCooldown(Command command, CommandEvent event)
+    {
+        return toSeconds(commandCooldowns.tryApply(CooldownKey.of(command, event), TimeUnit.SECONDS.toNanos(command.getCooldown())));
     }
 
     @Override
     public void cleanCooldowns()
     {
-        OffsetDateTime now = OffsetDateTime.now();
-        cooldowns.keySet().stream().filter((str) -> (cooldowns.get(str).isBefore(now)))
-                .collect(Collectors.toList()).forEach(cooldowns::remove);
+        cooldowns.sweep();
+        commandCooldowns.sweep();
     }
 
     @Override
@@ -248,7 +262,8 @@ public class CommandClientImpl implements CommandClient, EventListener
     @Override
     public int getCommandUses(String name)
     {
-    	return uses.getOrDefault(name, 0);
+        LongAdder count = uses.get(name);
+        return count == null ? 0 : count.intValue();
     }
 
     @Override
@@ -367,6 +382,18 @@ public class CommandClientImpl implements CommandClient, EventListener
         return error;
     }
 
+    @Override
+    public Map<String, LatencyHistogram> getCommandLatencies()
+    {
+        return Collections.unmodifiableMap(latencies);
+    }
+
+    @Override
+    public LatencyHistogram getCommandQueueLatency()
+    {
+        return queueLatency;
+    }
+
     @Override
     public ScheduledExecutorService getScheduleExecutor()
     {
@@ -455,7 +482,10 @@ public class CommandClientImpl implements CommandClient, EventListener
                 sendStats(event.getJDA());
         }
         else if(event instanceof GuildLeaveEvent)
+        {
+            guildPrefixes.remove(((GuildLeaveEvent)event).getGuild().getIdLong());
             sendStats(event.getJDA());
+        }
         else if(event instanceof ReadyEvent)
             onReady((ReadyEvent)event);
         else if(event instanceof ShutdownEvent)
@@ -496,34 +526,12 @@ public class CommandClientImpl implements CommandClient, EventListener
 
         GuildSettingsProvider settings = event.isFromType(ChannelType.TEXT)? provideSettings(event.getGuild()) : null;
 
-        // Check for prefix or alternate prefix (@mention cases)
-        if(prefix.equals(DEFAULT_PREFIX) || (altprefix != null && altprefix.equals(DEFAULT_PREFIX)))
-        {
-            if(rawContent.startsWith("<@"+event.getJDA().getSelfUser().getId()+">") ||
-                    rawContent.startsWith("<@!"+event.getJDA().getSelfUser().getId()+">"))
-            {
-                parts = splitOnPrefixLength(rawContent, rawContent.indexOf(">") + 1);
-            }
-        }
-        // Check for prefix
-        if(parts == null && rawContent.toLowerCase().startsWith(prefix.toLowerCase()))
-            parts = splitOnPrefixLength(rawContent, prefix.length());
-        // Check for alternate prefix
-        if(parts == null && altprefix != null && rawContent.toLowerCase().startsWith(altprefix.toLowerCase()))
-            parts = splitOnPrefixLength(rawContent, altprefix.length());
-        // Check for guild specific prefixes
-        if(parts == null && settings != null)
-        {
-            Collection<String> prefixes = settings.getPrefixes();
-            if(prefixes != null)
-            {
-                for(String prefix : prefixes)
-                {
-                    if(parts == null && rawContent.toLowerCase().startsWith(prefix.toLowerCase()))
-                        parts = splitOnPrefixLength(rawContent, prefix.length());
-                }
-            }
-        }
+        // Check for the mention, prefix and alternate prefix, then guild specific prefixes
+        int length = getPrefixMatcher(event.getJDA()).match(rawContent);
+        if(length == -1 && settings != null)
+            length = getGuildPrefixMatcher(event.getGuild().getIdLong(), settings).match(rawContent);
+        if(length != -1)
+            parts = splitOnPrefixLength(rawContent, length);
 
         if(parts!=null) //starts with valid prefix
         {
@@ -554,8 +562,11 @@ public class CommandClientImpl implements CommandClient, EventListener
 
                     if(listener != null)
                         listener.onCommand(cevent, command);
-                    uses.put(command.getName(), uses.getOrDefault(command.getName(), 0) + 1);
-                    command.run(cevent);
+                    LongAdder count = uses.get(command.getName());
+                    if(count == null)
+                        count = uses.computeIfAbsent(command.getName(), key -> new LongAdder());
+                    count.increment();
+                    dispatch(event, command, cevent);
                     return; // Command is done
                 }
             }
@@ -565,6 +576,32 @@ public class CommandClientImpl implements CommandClient, EventListener
             listener.onNonCommandMessage(event);
     }
 
+    private void dispatch(MessageReceivedEvent event, Command command, CommandEvent cevent)
+    {
+        long received = System.nanoTime();
+        Runnable task = () ->
+        {
+            long started = System.nanoTime();
+            queueLatency.record(started - received);
+            try
+            {
+                command.run(cevent);
+            }
+            finally
+            {
+                latencies.computeIfAbsent(command.getName(), name -> new LatencyHistogram()).record(System.nanoTime() - started);
+            }
+        };
+        if(commandExecutor == null)
+        {
+            task.run();
+            return;
+        }
+        long key = event.isFromGuild() ? event.getGuild().getIdLong() : event.getChannel().getIdLong();
+        if(!commandExecutor.submit(key, task))
+            cevent.replyWarning("Too many commands are waiting to run here, please try again in a moment.");
+    }
+
     private void sendStats(JDA jda)
     {
         OkHttpClient client = jda.getHttpClient();
@@ -662,14 +699,17 @@ public class CommandClientImpl implements CommandClient, EventListener
         // that is checked in onEvent(Event) before this is even called.
         if(!event.isFromGuild())
             return;
-        synchronized(linkMap)
+        long[] replies = linkMap.remove(event.getMessageIdLong());
+        if(replies == null)
+            return;
+        for(int i = 0; i < replies.length; i += 2)
         {
-            if(linkMap.contains(event.getMessageIdLong()))
-            {
-                Set<Message> messages = linkMap.get(event.getMessageIdLong());
-                if(messages.size()>0)
-                    messages.forEach(m -> m.delete().queue(unused -> {}, ignored -> {}));
-            }
+            MessageChannel channel = replies[i] == event.getChannel().getIdLong() ? event.getChannel() 
+                    : event.getJDA().getChannelById(MessageChannel.class, replies[i]);
+            if(channel == null)
+                channel = event.getJDA().getPrivateChannelById(replies[i]);
+            if(channel != null)
+                channel.deleteMessageById(replies[i + 1]).queue(unused -> {}, ignored -> {});
         }
     }
 
@@ -682,9 +722,203 @@ public class CommandClientImpl implements CommandClient, EventListener
             return null;
     }
 
+    private PrefixMatcher getPrefixMatcher(JDA jda)
+    {
+        PrefixMatcher matcher = prefixMatcher;
+        if(matcher == null)
+        {
+            List<String> prefixes = new ArrayList<>();
+            if(prefix.equals(DEFAULT_PREFIX) || (altprefix != null && altprefix.equals(DEFAULT_PREFIX)))
+            {
+                prefixes.add("<@"+jda.getSelfUser().getId()+">");
+                prefixes.add("<@!"+jda.getSelfUser().getId()+">");
+            }
+            prefixes.add(prefix);
+            prefixes.add(altprefix);
+            prefixMatcher = matcher = PrefixMatcher.of(prefixes);
+        }
+        return matcher;
+    }
+
+    private PrefixMatcher getGuildPrefixMatcher(long guildId, GuildSettingsProvider settings)
+    {
+        Collection<String> prefixes = settings.getPrefixes();
+        if(prefixes == null || prefixes.isEmpty())
+        {
+            guildPrefixes.remove(guildId);
+            return PrefixMatcher.EMPTY;
+        }
+        GuildPrefixes cached = guildPrefixes.get(guildId);
+        if(cached != null && cached.prefixes == prefixes)
+            return cached.matcher;
+        // a provider that builds a new collection every time still gets to reuse the matcher
+        PrefixMatcher matcher = cached != null && cached.prefixes.equals(prefixes) ? cached.matcher : PrefixMatcher.of(prefixes);
+        guildPrefixes.put(guildId, new GuildPrefixes(prefixes, matcher));
+        return matcher;
+    }
+
     private static String[] splitOnPrefixLength(String rawContent, int length)
     {
-        return Arrays.copyOf(rawContent.substring(length).trim().split("\\s+", 2), 2);
+        // the same as rawContent.substring(length).trim().split("\\s+", 2), without the regex
+        int start = length, end = rawContent.length();
+        while(start < end && rawContent.charAt(start) <= ' ')
+            start++;
+        while(end > start && rawContent.charAt(end - 1) <= ' ')
+            end--;
+        int split = start;
+        while(split < end && !isWhitespace(rawContent.charAt(split)))
+            split++;
+        if(split == end)
+            return new String[]{rawContent.substring(start, end), null};
+        int args = split;
+        while(isWhitespace(rawContent.charAt(args)))
+            args++;
+        return new String[]{rawContent.substring(start, split), rawContent.substring(args, end)};
+    }
+
+    private static boolean isWhitespace(char c)
+    {
+        // the characters \s matches in a regex
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private long remaining(String name)
+    {
+        CooldownKey key = parseCooldownKey(name);
+        return key != null ? commandCooldowns.remaining(key) : cooldowns.remaining(name);
+    }
+
+    /**
+     * Reads a key made by {@link Command#getCooldownKey(CommandEvent)} back into the key its
+     * Command's cooldowns are kept under, so the String methods see them too.
+     *
+     * @return the key, or {@code null} if the name isn't one of a Command added to this client
+     */
+    private CooldownKey parseCooldownKey(String name)
+    {
+        int split = name.indexOf('|');
+        if(split == -1)
+            return null;
+        String commandName = name.substring(0, split);
+        Command command;
+        synchronized(commandIndex)
+        {
+            int i = commandIndex.getOrDefault(commandName.toLowerCase(), -1);
+            command = i != -1 ? commands.get(i) : null;
+        }
+        if(command == null || !command.getName().equals(commandName))
+            return null;
+
+        String[] parts = name.substring(split + 1).split("\\|");
+        if(parts.length == 1 && parts[0].equals("Global"))
+            return new CooldownKey(command, Command.CooldownScope.GLOBAL, 0, 0);
+        if(parts.length > 2)
+            return null;
+        long[] ids = new long[2];
+        StringBuilder tags = new StringBuilder();
+        for(int i = 0; i < parts.length; i++)
+        {
+            if(parts[i].length() < 3 || parts[i].charAt(1) != ':')
+                return null;
+            tags.append(parts[i].charAt(0));
+            try
+            {
+                ids[i] = Long.parseLong(parts[i].substring(2));
+            }
+            catch(NumberFormatException ex)
+            {
+                return null;
+            }
+        }
+        Command.CooldownScope scope;
+        switch(tags.toString())
+        {
+            case "U":  scope = Command.CooldownScope.USER;         break;
+            case "C":  scope = Command.CooldownScope.CHANNEL;      break;
+            case "G":  scope = Command.CooldownScope.GUILD;        break;
+            case "S":  scope = Command.CooldownScope.SHARD;        break;
+            case "UC": scope = Command.CooldownScope.USER_CHANNEL; break;
+            case "UG": scope = Command.CooldownScope.USER_GUILD;   break;
+            case "US": scope = Command.CooldownScope.USER_SHARD;   break;
+            default:   return null;
+        }
+        return new CooldownKey(command, scope, ids[0], ids[1]);
+    }
+
+    private static int toSeconds(long nanos)
+    {
+        return (int) ((nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * What a Command's cooldown applies to, as the same IDs {@link Command#getCooldownKey(CommandEvent)}
+     * puts in its String key, without building the String.
+     */
+    private static final class CooldownKey
+    {
+        private final Command command;
+        private final Command.CooldownScope scope;
+        private final long idOne, idTwo;
+
+        private CooldownKey(Command command, Command.CooldownScope scope, long idOne, long idTwo)
+        {
+            this.command = command;
+            this.scope = scope;
+            this.idOne = idOne;
+            this.idTwo = idTwo;
+        }
+
+        private static CooldownKey of(Command command, CommandEvent event)
+        {
+            long user = event.getAuthor().getIdLong(), channel = event.getChannel().getIdLong();
+            boolean guild = event.getEvent().isFromGuild();
+            JDA.ShardInfo shard = event.getJDA().getShardInfo();
+            switch(command.getCooldownScope())
+            {
+                case USER:         return new CooldownKey(command, Command.CooldownScope.USER, user, 0);
+                case USER_GUILD:   return guild ? new CooldownKey(command, Command.CooldownScope.USER_GUILD, user, event.getGuild().getIdLong()) :
+                        new CooldownKey(command, Command.CooldownScope.USER_CHANNEL, user, channel);
+                case USER_CHANNEL: return new CooldownKey(command, Command.CooldownScope.USER_CHANNEL, user, channel);
+                case GUILD:        return guild ? new CooldownKey(command, Command.CooldownScope.GUILD, event.getGuild().getIdLong(), 0) :
+                        new CooldownKey(command, Command.CooldownScope.CHANNEL, channel, 0);
+                case CHANNEL:      return new CooldownKey(command, Command.CooldownScope.CHANNEL, channel, 0);
+                case SHARD:        return shard != null ? new CooldownKey(command, Command.CooldownScope.SHARD, shard.getShardId(), 0) :
+                        new CooldownKey(command, Command.CooldownScope.GLOBAL, 0, 0);
+                case USER_SHARD:   return shard != null ? new CooldownKey(command, Command.CooldownScope.USER_SHARD, user, shard.getShardId()) :
+                        new CooldownKey(command, Command.CooldownScope.USER, user, 0);
+                default:           return new CooldownKey(command, Command.CooldownScope.GLOBAL, 0, 0);
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if(!(obj instanceof CooldownKey))
+                return false;
+            CooldownKey other = (CooldownKey) obj;
+            return command == other.command && scope == other.scope && idOne == other.idOne && idTwo == other.idTwo;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            int hash = System.identityHashCode(command);
+            hash = 31 * hash + scope.ordinal();
+            hash = 31 * hash + Long.hashCode(idOne);
+            return 31 * hash + Long.hashCode(idTwo);
+        }
+    }
+
+    private static class GuildPrefixes
+    {
+        private final Collection<String> prefixes;
+        private final PrefixMatcher matcher;
+
+        private GuildPrefixes(Collection<String> prefixes, PrefixMatcher matcher)
+        {
+            this.prefixes = prefixes;
+            this.matcher = matcher;
+        }
     }
 
     /**
@@ -705,17 +939,6 @@ public class CommandClientImpl implements CommandClient, EventListener
         if(!usesLinkedDeletion())
             return;
 
-        synchronized(linkMap)
-        {
-            Set<Message> stored = linkMap.get(callId);
-            if(stored != null)
-                stored.add(message);
-            else
-            {
-                stored = new HashSet<>();
-                stored.add(message);
-                linkMap.add(callId, stored);
-            }
-        }
+        linkMap.add(callId, message.getChannel().getIdLong(), message.getIdLong());
     }
 }
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Cooldown deadlines, kept on {@link System#nanoTime()} so they aren't thrown off by the wall clock.
+ *
+ * <p>Every cooldown is also filed in a timing wheel of one second slots by its deadline. Whoever
+ * applies a cooldown sweeps the slots whose second has passed, so expired cooldowns are dropped
+ * a second or so after they run out without a full scan or a thread of its own.
+ *
+ * @param <K> the type of key
+ */
+final class Cooldowns<K>
+{
+    private static final int SLOTS = 64;
+    private static final long TICK = TimeUnit.SECONDS.toNanos(1);
+
+    private final Map<K, Entry<K>> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry<K>>[] wheel;
+    private final LongSupplier clock;
+    private final AtomicLong swept; // the last tick whose slot has been swept
+
+    Cooldowns()
+    {
+        this(System::nanoTime);
+    }
+
+    @SuppressWarnings("unchecked")
+    Cooldowns(LongSupplier clock)
+    {
+        this.clock = clock;
+        this.wheel = new Queue[SLOTS];
+        for(int i = 0; i < SLOTS; i++)
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        this.swept = new AtomicLong(Math.floorDiv(clock.getAsLong(), TICK) - 1);
+    }
+
+    /**
+     * Starts a cooldown, unless one is already running for the key. Checking and starting are one step,
+     * so two calls at the same time can't both start it.
+     *
+     * @param  key
+     *         The key
+     * @param  nanos
+     *         How long the cooldown lasts
+     *
+     * @return {@code 0} if the cooldown was started, otherwise the nanoseconds left on the running one
+     */
+    long tryApply(K key, long nanos)
+    {
+        long now = clock.getAsLong();
+        while(true)
+        {
+            Entry<K> current = entries.get(key);
+            if(current != null && current.deadline - now > 0)
+                return current.deadline - now;
+            Entry<K> next = new Entry<>(key, now + nanos);
+            if(current == null ? entries.putIfAbsent(key, next) == null : entries.replace(key, current, next))
+            {
+                schedule(next);
+                sweep(now);
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Starts a cooldown, replacing any that is running for the key.
+     */
+    void apply(K key, long nanos)
+    {
+        long now = clock.getAsLong();
+        Entry<K> entry = new Entry<>(key, now + nanos);
+        entries.put(key, entry);
+        schedule(entry);
+        sweep(now);
+    }
+
+    /**
+     * @return the nanoseconds left on the cooldown, or {@code 0} if there is none running
+     */
+    long remaining(K key)
+    {
+        Entry<K> entry = entries.get(key);
+        if(entry == null)
+            return 0;
+        long remaining = entry.deadline - clock.getAsLong();
+        if(remaining > 0)
+            return remaining;
+        entries.remove(key, entry);
+        return 0;
+    }
+
+    /**
+     * Drops every cooldown whose second has passed.
+     */
+    void sweep()
+    {
+        sweep(clock.getAsLong());
+    }
+
+    int size()
+    {
+        return entries.size();
+    }
+
+    private void schedule(Entry<K> entry)
+    {
+        wheel[(int) Math.floorMod(Math.floorDiv(entry.deadline, TICK), (long) SLOTS)].add(entry);
+    }
+
+    private void sweep(long now)
+    {
+        long target = Math.floorDiv(now, TICK) - 1;
+        long last = swept.get();
+        // only one caller sweeps any given tick
+        if(target <= last || !swept.compareAndSet(last, target))
+            return;
+        for(long tick = Math.max(last + 1, target - SLOTS + 1); tick <= target; tick++)
+            drain(wheel[(int) Math.floorMod(tick, (long) SLOTS)], now);
+    }
+
+    private void drain(Queue<Entry<K>> slot, long now)
+    {
+        List<Entry<K>> later = null;
+        Entry<K> entry;
+        while((entry = slot.poll()) != null)
+        {
+            if(entries.get(entry.key) != entry)
+                continue; // replaced or already removed
+            if(entry.deadline - now <= 0)
+                entries.remove(entry.key, entry);
+            else
+            {
+                // due on a later turn of the wheel
+                if(later == null)
+                    later = new ArrayList<>();
+                later.add(entry);
+            }
+        }
+        if(later != null)
+            later.forEach(slot::add);
+    }
+
+    private static final class Entry<K>
+    {
+        private final K key;
+        private final long deadline;
+
+        private Entry(K key, long deadline)
+        {
+            this.key = key;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs commands off the event thread, one at a time for each guild, so that commands in the
+ * same guild still run in the order they were sent while commands in other guilds run alongside them.
+ *
+ * <p>Each guild gets a lane with a bounded queue. A lane that is running hands its worker back
+ * after every command, so one busy guild can't keep a worker from the others.
+ */
+public class GuildCommandExecutor
+{
+    private static final Logger LOG = LoggerFactory.getLogger(GuildCommandExecutor.class);
+
+    private final Executor workers;
+    private final int maxQueued;
+    private final Map<Long, Lane> lanes = new ConcurrentHashMap<>();
+
+    /**
+     * @param  workers
+     *         The executor that commands are run on
+     * @param  maxQueued
+     *         How many commands each guild can have waiting, not counting the one running
+     */
+    public GuildCommandExecutor(Executor workers, int maxQueued)
+    {
+        this.workers = workers;
+        this.maxQueued = Math.max(0, maxQueued);
+    }
+
+    /**
+     * Queues a task behind anything else queued with the same key.
+     *
+     * @param  key
+     *         The guild ID, or the channel ID for direct messages
+     * @param  task
+     *         The task to run
+     *
+     * @return {@code false} if that key already has as many tasks waiting as allowed, in which
+     *         case the task won't be run
+     */
+    public boolean submit(long key, Runnable task)
+    {
+        boolean[] accepted = new boolean[1];
+        Lane lane = lanes.compute(key, (k, current) ->
+        {
+            if(current == null)
+                current = new Lane(k);
+            else if(current.queue.size() >= maxQueued)
+                return current;
+            current.queue.add(task);
+            accepted[0] = true;
+            return current;
+        });
+        if(accepted[0])
+            lane.schedule();
+        return accepted[0];
+    }
+
+    /**
+     * Gets how many tasks are waiting or running across every key.
+     *
+     * @return the number of tasks
+     */
+    public int getPending()
+    {
+        int pending = 0;
+        for(Lane lane : lanes.values())
+            pending += lane.queue.size() + (lane.running ? 1 : 0);
+        return pending;
+    }
+
+    private class Lane implements Runnable
+    {
+        private final long key;
+        // only touched inside lanes.compute, which serializes everything for this key
+        private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+        private volatile boolean running = false;
+
+        private Lane(long key)
+        {
+            this.key = key;
+        }
+
+        private void schedule()
+        {
+            boolean[] start = new boolean[1];
+            lanes.computeIfPresent(key, (k, current) ->
+            {
+                if(current == this && !running && !queue.isEmpty())
+                {
+                    running = true;
+                    start[0] = true;
+                }
+                return current;
+            });
+            if(!start[0])
+                return;
+            try
+            {
+                workers.execute(this);
+            }
+            catch(RejectedExecutionException ex)
+            {
+                // shutting down; drop what's left
+                lanes.remove(key, this);
+            }
+        }
+
+        @Override
+        public void run()
+        {
+            Runnable[] next = new Runnable[1];
+            lanes.computeIfPresent(key, (k, current) ->
+            {
+                next[0] = queue.poll();
+                return current;
+            });
+            try
+            {
+                if(next[0] != null)
+                    next[0].run();
+            }
+            catch(Throwable t)
+            {
+                LOG.error("A queued command threw an exception", t);
+            }
+            finally
+            {
+                lanes.computeIfPresent(key, (k, current) ->
+                {
+                    running = false;
+                    // an idle lane is dropped, so guilds that stop sending commands don't stay in the map
+                    return queue.isEmpty() ? null : current;
+                });
+                schedule();
+            }
+        }
+    }
+}
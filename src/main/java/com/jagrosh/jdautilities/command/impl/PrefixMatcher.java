@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Matches the start of a message against a fixed set of prefixes, ignoring case, without
+ * allocating. Most messages aren't commands, so the first character is checked against the
+ * first characters of every prefix before any prefix is compared in full.
+ *
+ * <p>Prefixes are tried in the order given, and the first that matches wins.
+ */
+final class PrefixMatcher
+{
+    static final PrefixMatcher EMPTY = new PrefixMatcher(new ArrayList<>());
+
+    private final String[] prefixes;
+    private final char[] firsts; // the first character of each prefix, in both cases
+    private final boolean matchesAll;
+
+    private PrefixMatcher(List<String> prefixes)
+    {
+        this.prefixes = prefixes.toArray(new String[0]);
+        this.firsts = new char[this.prefixes.length * 2];
+        boolean matchesAll = false;
+        for(int i = 0; i < this.prefixes.length; i++)
+        {
+            String prefix = this.prefixes[i];
+            if(prefix.isEmpty())
+            {
+                matchesAll = true;
+                continue;
+            }
+            firsts[i * 2] = Character.toLowerCase(prefix.charAt(0));
+            firsts[i * 2 + 1] = Character.toUpperCase(prefix.charAt(0));
+        }
+        this.matchesAll = matchesAll;
+    }
+
+    /**
+     * Builds a matcher, leaving out {@code null} prefixes.
+     *
+     * @param  prefixes
+     *         The prefixes, in the order they should be tried
+     *
+     * @return The matcher
+     */
+    static PrefixMatcher of(Collection<String> prefixes)
+    {
+        List<String> list = new ArrayList<>(prefixes.size());
+        for(String prefix : prefixes)
+        {
+            if(prefix != null)
+                list.add(prefix);
+        }
+        return list.isEmpty() ? EMPTY : new PrefixMatcher(list);
+    }
+
+    /**
+     * Gets the length of the first prefix the content starts with.
+     *
+     * @param  content
+     *         The raw content of a message
+     *
+     * @return The length of the matching prefix, or {@code -1} if none match
+     */
+    int match(String content)
+    {
+        if(content.isEmpty())
+            return matchesAll ? 0 : -1;
+        if(!matchesAll && !isFirst(content.charAt(0)))
+            return -1;
+        for(String prefix : prefixes)
+        {
+            if(content.regionMatches(true, 0, prefix, 0, prefix.length()))
+                return prefix.length();
+        }
+        return -1;
+    }
+
+    private boolean isFirst(char c)
+    {
+        for(char first : firsts)
+        {
+            if(first == c)
+                return true;
+        }
+        return false;
+    }
+}
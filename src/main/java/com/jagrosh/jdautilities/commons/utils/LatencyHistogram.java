@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commons.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations, in buckets whose upper bounds double from one millisecond
+ * up to about half a minute, plus one for anything longer.
+ *
+ * <p>Recording is a couple of {@link java.util.concurrent.atomic.LongAdder LongAdder} increments,
+ * so it can be done from many threads on every call of something hot.
+ */
+public class LatencyHistogram
+{
+    /** The number of bounded buckets; the last bucket holds anything longer. */
+    public static final int BUCKETS = 16;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS + 1];
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public LatencyHistogram()
+    {
+        for(int i = 0; i < counts.length; i++)
+            counts[i] = new LongAdder();
+    }
+
+    /**
+     * Gets the upper bound of a bucket.
+     *
+     * @param  bucket
+     *         The bucket, from {@code 0} to {@link #BUCKETS}{@code - 1}
+     *
+     * @return The upper bound, in milliseconds
+     */
+    public static long getBound(int bucket)
+    {
+        return 1L << bucket;
+    }
+
+    /**
+     * Records one duration.
+     *
+     * @param  nanos
+     *         The duration, in nanoseconds
+     */
+    public void record(long nanos)
+    {
+        long millis = Math.max(0, TimeUnit.NANOSECONDS.toMillis(nanos));
+        // the smallest bucket whose bound is above millis
+        int bucket = Math.min(BUCKETS, 64 - Long.numberOfLeadingZeros(millis));
+        counts[bucket].increment();
+        sum.add(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Gets how many durations fell in a bucket.
+     *
+     * @param  bucket
+     *         The bucket, from {@code 0} to {@link #BUCKETS}, the last being the overflow bucket
+     *
+     * @return The count
+     */
+    public long getCount(int bucket)
+    {
+        return counts[bucket].sum();
+    }
+
+    public long getCount()
+    {
+        long count = 0;
+        for(LongAdder c : counts)
+            count += c.sum();
+        return count;
+    }
+
+    public long getSumNanos()
+    {
+        return sum.sum();
+    }
+
+    public long getMaxNanos()
+    {
+        return max.get();
+    }
+
+    /**
+     * Estimates a percentile as the upper bound of the bucket it falls in.
+     *
+     * @param  percentile
+     *         The percentile, from {@code 0} to {@code 100}
+     *
+     * @return The estimate, in milliseconds, or {@code 0} if nothing was recorded
+     */
+    public long getPercentile(double percentile)
+    {
+        long[] snapshot = new long[counts.length];
+        long total = 0;
+        for(int i = 0; i < counts.length; i++)
+            total += snapshot[i] = counts[i].sum();
+        if(total == 0)
+            return 0;
+        long rank = (long) Math.ceil(percentile / 100 * total);
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++)
+        {
+            seen += snapshot[i];
+            if(seen >= rank)
+                return getBound(i);
+        }
+        return TimeUnit.NANOSECONDS.toMillis(max.get());
+    }
+}
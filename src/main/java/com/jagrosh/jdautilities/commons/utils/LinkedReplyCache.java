@@ -0,0 +1,162 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commons.utils;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A bounded, thread-safe cache pairing the ID of a calling message with the channel and message IDs
+ * of the replies to it, so the replies can be found again when the call is deleted.
+ *
+ * <p>Only IDs are kept, never the messages themselves. Reads don't lock. Writes lock one of a
+ * number of stripes, chosen by the call ID, and each stripe drops its oldest call once it holds
+ * its share of the capacity, like {@link FixedSizeCache FixedSizeCache} does.
+ */
+public class LinkedReplyCache
+{
+    private static final int STRIPES = 16;
+
+    private final Map<Long, long[]> replies = new ConcurrentHashMap<>();
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    /**
+     * @param  capacity
+     *         How many calls to keep replies for, at least {@code 1}
+     */
+    public LinkedReplyCache(int capacity)
+    {
+        if(capacity < 1)
+            throw new IllegalArgumentException("Cache size must be at least 1!");
+        int share = (capacity + STRIPES - 1) / STRIPES;
+        for(int i = 0; i < STRIPES; i++)
+            stripes[i] = new Stripe(share);
+    }
+
+    /**
+     * Links a reply to a call.
+     *
+     * @param  callId
+     *         The ID of the calling message
+     * @param  channelId
+     *         The ID of the channel the reply is in
+     * @param  messageId
+     *         The ID of the reply
+     */
+    public void add(long callId, long channelId, long messageId)
+    {
+        Stripe stripe = stripes[stripe(callId)];
+        synchronized(stripe)
+        {
+            long[] current = replies.get(callId);
+            if(current == null)
+            {
+                long evicted = stripe.push(callId);
+                if(evicted != 0)
+                    replies.remove(evicted);
+                current = new long[0];
+            }
+            // copied rather than changed in place, since readers don't lock
+            long[] next = Arrays.copyOf(current, current.length + 2);
+            next[current.length] = channelId;
+            next[current.length + 1] = messageId;
+            replies.put(callId, next);
+        }
+    }
+
+    /**
+     * Gets the replies linked to a call.
+     *
+     * @param  callId
+     *         The ID of the calling message
+     *
+     * @return Pairs of channel and message IDs, one after the other, or {@code null} if none are linked.
+     *         The array must not be modified.
+     */
+    public long[] get(long callId)
+    {
+        return replies.get(callId);
+    }
+
+    /**
+     * Removes and returns the replies linked to a call.
+     *
+     * @param  callId
+     *         The ID of the calling message
+     *
+     * @return Pairs of channel and message IDs, one after the other, or {@code null} if none were linked
+     */
+    public long[] remove(long callId)
+    {
+        Stripe stripe = stripes[stripe(callId)];
+        synchronized(stripe)
+        {
+            long[] removed = replies.remove(callId);
+            // otherwise linking the call again would give it a second slot, and the older
+            // one would evict it early
+            if(removed != null)
+                stripe.clear(callId);
+            return removed;
+        }
+    }
+
+    public int size()
+    {
+        return replies.size();
+    }
+
+    static int stripe(long callId)
+    {
+        // the low bits of a snowflake are a per-process counter, so mix in the rest
+        long h = callId ^ (callId >>> 22) ^ (callId >>> 41);
+        return (int) (h ^ (h >>> 16)) & (STRIPES - 1);
+    }
+
+    private static final class Stripe
+    {
+        private final long[] keys;
+        private int next = 0;
+
+        private Stripe(int size)
+        {
+            this.keys = new long[size];
+        }
+
+        /**
+         * @return the key this one replaced, or {@code 0} if its slot was empty
+         */
+        private long push(long key)
+        {
+            long evicted = keys[next];
+            keys[next] = key;
+            next = (next + 1) % keys.length;
+            return evicted;
+        }
+
+        private void clear(long key)
+        {
+            for(int i = 0; i < keys.length; i++)
+            {
+                if(keys[i] == key)
+                {
+                    keys[i] = 0;
+                    return;
+                }
+            }
+        }
+    }
+}
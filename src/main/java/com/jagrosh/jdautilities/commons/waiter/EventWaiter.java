@@ -15,17 +15,20 @@
  */
 package com.jagrosh.jdautilities.commons.waiter;
 
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.message.GenericMessageEvent;
 import net.dv8tion.jda.api.events.session.ShutdownEvent;
 import net.dv8tion.jda.api.hooks.EventListener;
 import net.dv8tion.jda.internal.utils.Checks;
@@ -36,12 +39,25 @@ import net.dv8tion.jda.internal.utils.Checks;
  * <p>This is a trimmed-down subset of the original JDA-Utilities EventWaiter,
  * updated for JDA 5+. It supports waiting for a single event type with a predicate,
  * an action, and an optional timeout.
+ *
+ * <p>Waiters are indexed by the event class they wait for and, optionally, the channel, so an
+ * event only looks at the waiters that could want it. Timeouts share one
+ * {@link TimeoutWheel timing wheel} instead of each scheduling its own task.
  */
 public class EventWaiter implements EventListener
 {
+    /** The channel ID for waiters that aren't tied to a channel. */
+    public static final long ANY_CHANNEL = 0L;
+
+    private static final Class<?>[] NONE = new Class<?>[0];
+
     private final ScheduledExecutorService threadpool;
     private final boolean shutdownAutomatically;
-    private final Set<WaitingEvent<?>> waiting = ConcurrentHashMap.newKeySet();
+    private final TimeoutWheel timeouts;
+    // waiters by the class they wait for, then by channel
+    private final Map<Class<?>, Map<Long, Set<WaitingEvent<?>>>> waiting = new ConcurrentHashMap<>();
+    // for each class of event seen, which of the classes in waiting it is an instance of
+    private volatile Map<Class<?>, Class<?>[]> matching = new ConcurrentHashMap<>();
 
     public EventWaiter()
     {
@@ -52,6 +68,7 @@ public class EventWaiter implements EventListener
     {
         this.threadpool = Objects.requireNonNull(threadpool, "threadpool");
         this.shutdownAutomatically = shutdownAutomatically;
+        this.timeouts = new TimeoutWheel(threadpool, 100, TimeUnit.MILLISECONDS);
     }
 
     @Override
@@ -63,31 +80,69 @@ public class EventWaiter implements EventListener
             return;
         }
 
-        Iterator<WaitingEvent<?>> it = waiting.iterator();
-        while(it.hasNext())
+        Map<Class<?>, Class<?>[]> matching = this.matching;
+        Class<?>[] types = matching.get(event.getClass());
+        if(types == null)
+            types = matching.computeIfAbsent(event.getClass(), this::findMatching);
+        if(types.length == 0)
+            return;
+        long channel = event instanceof GenericMessageEvent ? ((GenericMessageEvent) event).getChannel().getIdLong() : ANY_CHANNEL;
+        for(Class<?> type : types)
         {
-            WaitingEvent<?> w = it.next();
-            if(w.tryAccept(event))
-            {
-                it.remove();
-                w.cancelTimeout();
-            }
+            Map<Long, Set<WaitingEvent<?>>> byChannel = waiting.get(type);
+            if(channel != ANY_CHANNEL)
+                dispatch(byChannel.get(channel), event);
+            dispatch(byChannel.get(ANY_CHANNEL), event);
         }
     }
 
     public void shutdown()
     {
+        timeouts.stop();
         threadpool.shutdownNow();
-        waiting.clear();
+        waiting.values().forEach(Map::clear);
     }
 
     public <T extends GenericEvent> void waitForEvent(Class<T> classType, Predicate<T> condition, Consumer<T> action)
     {
-        waitForEvent(classType, condition, action, -1, null, null);
+        waitForEvent(classType, ANY_CHANNEL, condition, action, -1, null, null);
+    }
+
+    public <T extends GenericEvent> void waitForEvent(
+            Class<T> classType,
+            Predicate<T> condition,
+            Consumer<T> action,
+            long timeout,
+            TimeUnit unit,
+            Runnable timeoutAction
+    )
+    {
+        waitForEvent(classType, ANY_CHANNEL, condition, action, timeout, unit, timeoutAction);
     }
 
+    /**
+     * Waits for an event in one channel. Only events that happen in a channel, such as
+     * {@link net.dv8tion.jda.api.events.message.GenericMessageEvent GenericMessageEvent}s,
+     * are checked against the condition, and only those in the given channel.
+     *
+     * @param  classType
+     *         The class of event to wait for
+     * @param  channelId
+     *         The ID of the channel, or {@link #ANY_CHANNEL} to check events from anywhere
+     * @param  condition
+     *         The condition the event must meet
+     * @param  action
+     *         Run with the first event that meets the condition
+     * @param  timeout
+     *         How long to wait, or {@code 0} or less to wait forever
+     * @param  unit
+     *         The unit of the timeout
+     * @param  timeoutAction
+     *         Run if the timeout passes first, may be {@code null}
+     */
     public <T extends GenericEvent> void waitForEvent(
             Class<T> classType,
+            long channelId,
             Predicate<T> condition,
             Consumer<T> action,
             long timeout,
@@ -99,55 +154,113 @@ public class EventWaiter implements EventListener
         Checks.check(condition != null, "condition");
         Checks.check(action != null, "action");
 
-        WaitingEvent<T> waitingEvent = new WaitingEvent<>(classType, condition, action);
+        WaitingEvent<T> waitingEvent = new WaitingEvent<>(classType, channelId, condition, action);
+        Map<Long, Set<WaitingEvent<?>>> byChannel = waiting.get(classType);
+        if(byChannel == null)
+        {
+            byChannel = waiting.computeIfAbsent(classType, type -> new ConcurrentHashMap<>());
+            // a new class of waiter may match events that have already been looked up; a lookup
+            // still running against the old map can't put a stale answer in the new one
+            matching = new ConcurrentHashMap<>();
+        }
+        byChannel.compute(channelId, (id, set) ->
+        {
+            if(set == null)
+                set = ConcurrentHashMap.newKeySet();
+            set.add(waitingEvent);
+            return set;
+        });
         if(timeout > 0 && unit != null)
         {
-            ScheduledFuture<?> future = threadpool.schedule(() -> {
-                waiting.remove(waitingEvent);
-                if(timeoutAction != null)
-                    timeoutAction.run();
+            waitingEvent.timeout = timeouts.schedule(() ->
+            {
+                if(waitingEvent.finish())
+                {
+                    remove(waitingEvent);
+                    if(timeoutAction != null)
+                        timeoutAction.run();
+                }
             }, timeout, unit);
-            waitingEvent.setTimeoutFuture(future);
         }
-        waiting.add(waitingEvent);
+    }
+
+    private void dispatch(Set<WaitingEvent<?>> set, GenericEvent event)
+    {
+        if(set == null)
+            return;
+        for(WaitingEvent<?> w : set)
+        {
+            if(w.tryAccept(event))
+            {
+                remove(w);
+                w.cancelTimeout();
+            }
+        }
+    }
+
+    private void remove(WaitingEvent<?> w)
+    {
+        Map<Long, Set<WaitingEvent<?>>> byChannel = waiting.get(w.type);
+        if(byChannel != null)
+            byChannel.computeIfPresent(w.channelId, (id, set) ->
+            {
+                set.remove(w);
+                return set.isEmpty() ? null : set;
+            });
+    }
+
+    private Class<?>[] findMatching(Class<?> eventClass)
+    {
+        List<Class<?>> types = new ArrayList<>();
+        for(Class<?> type : waiting.keySet())
+        {
+            if(type.isAssignableFrom(eventClass))
+                types.add(type);
+        }
+        return types.isEmpty() ? NONE : types.toArray(new Class<?>[0]);
     }
 
     private static final class WaitingEvent<T extends GenericEvent>
     {
         private final Class<T> type;
+        private final long channelId;
         private final Predicate<T> condition;
         private final Consumer<T> action;
-        private volatile ScheduledFuture<?> timeoutFuture;
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile TimeoutWheel.Timeout timeout;
 
-        private WaitingEvent(Class<T> type, Predicate<T> condition, Consumer<T> action)
+        private WaitingEvent(Class<T> type, long channelId, Predicate<T> condition, Consumer<T> action)
         {
             this.type = type;
+            this.channelId = channelId;
             this.condition = condition;
             this.action = action;
         }
 
-        private void setTimeoutFuture(ScheduledFuture<?> future)
+        private boolean finish()
         {
-            this.timeoutFuture = future;
+            return finished.compareAndSet(false, true);
         }
 
         private void cancelTimeout()
         {
-            ScheduledFuture<?> f = timeoutFuture;
-            if(f != null)
-                f.cancel(false);
+            TimeoutWheel.Timeout t = timeout;
+            if(t != null)
+                t.cancel();
         }
 
         private boolean tryAccept(GenericEvent event)
         {
-            if(!type.isInstance(event))
+            if(finished.get())
                 return false;
             T casted = type.cast(event);
             if(!condition.test(casted))
                 return false;
+            // two events at once can both meet the condition, but only one gets the action
+            if(!finish())
+                return false;
             action.accept(casted);
             return true;
         }
     }
 }
-
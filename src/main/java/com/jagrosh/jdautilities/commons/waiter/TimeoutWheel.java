@@ -0,0 +1,158 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commons.waiter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * A hashed timing wheel: timeouts are filed in a ring of slots by the tick they are due in, and a
+ * single task on the scheduler runs whatever is due once per tick. Adding or cancelling a timeout
+ * costs the same however many are pending, and the scheduler holds one task instead of one per timeout.
+ *
+ * <p>Timeouts run up to two ticks late. Timeouts longer than a turn of the wheel stay in their slot
+ * until the turn they are due in.
+ */
+final class TimeoutWheel
+{
+    private static final int SLOTS = 512;
+
+    private final ScheduledExecutorService scheduler;
+    private final LongSupplier clock;
+    private final long tick;
+    private final ArrayDeque<Timeout>[] slots;
+    private long processed; // the last tick whose slot has been run
+    private ScheduledFuture<?> ticker;
+    private int pending = 0;
+
+    TimeoutWheel(ScheduledExecutorService scheduler, long tick, TimeUnit unit)
+    {
+        this(scheduler, tick, unit, System::nanoTime);
+    }
+
+    @SuppressWarnings("unchecked")
+    TimeoutWheel(ScheduledExecutorService scheduler, long tick, TimeUnit unit, LongSupplier clock)
+    {
+        this.scheduler = scheduler;
+        this.clock = clock;
+        this.tick = unit.toNanos(tick);
+        this.slots = new ArrayDeque[SLOTS];
+        for(int i = 0; i < SLOTS; i++)
+            slots[i] = new ArrayDeque<>();
+        this.processed = Math.floorDiv(clock.getAsLong(), this.tick) - 1;
+    }
+
+    /**
+     * Runs an action once the delay has passed, unless the returned timeout is cancelled first.
+     */
+    synchronized Timeout schedule(Runnable action, long delay, TimeUnit unit)
+    {
+        Timeout timeout = new Timeout(action, clock.getAsLong() + unit.toNanos(delay));
+        long at = Math.max(Math.floorDiv(timeout.deadline, tick), processed + 1);
+        slots[(int) (at & (SLOTS - 1))].add(timeout);
+        pending++;
+        if(ticker == null && scheduler != null)
+            ticker = scheduler.scheduleAtFixedRate(this::expire, tick, tick, TimeUnit.NANOSECONDS);
+        return timeout;
+    }
+
+    /**
+     * Runs every timeout whose tick has passed. This is what the scheduler runs each tick.
+     */
+    void expire()
+    {
+        List<Timeout> due = new ArrayList<>();
+        synchronized(this)
+        {
+            long now = clock.getAsLong();
+            long target = Math.floorDiv(now, tick) - 1;
+            // a late tick catches up, but never goes around the wheel more than once
+            for(long at = Math.max(processed + 1, target - SLOTS + 1); at <= target; at++)
+            {
+                ArrayDeque<Timeout> slot = slots[(int) (at & (SLOTS - 1))];
+                for(int n = slot.size(); n > 0; n--)
+                {
+                    Timeout timeout = slot.poll();
+                    if(timeout.done.get())
+                        pending--;
+                    else if(timeout.deadline - now <= 0)
+                    {
+                        pending--;
+                        due.add(timeout);
+                    }
+                    else
+                        slot.add(timeout); // due on a later turn of the wheel
+                }
+            }
+            processed = Math.max(processed, target);
+        }
+        for(Timeout timeout : due)
+        {
+            if(timeout.done.compareAndSet(false, true))
+            {
+                try
+                {
+                    timeout.action.run();
+                }
+                catch(RuntimeException ignored) {} // an exception would stop the ticker for good
+            }
+        }
+    }
+
+    /**
+     * @return how many timeouts are filed, including cancelled ones that haven't been reached yet
+     */
+    synchronized int getPending()
+    {
+        return pending;
+    }
+
+    synchronized void stop()
+    {
+        if(ticker != null)
+            ticker.cancel(false);
+        for(ArrayDeque<Timeout> slot : slots)
+            slot.clear();
+        pending = 0;
+    }
+
+    static final class Timeout
+    {
+        private final Runnable action;
+        private final long deadline;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Timeout(Runnable action, long deadline)
+        {
+            this.action = action;
+            this.deadline = deadline;
+        }
+
+        /**
+         * @return {@code false} if the timeout already ran or was cancelled
+         */
+        boolean cancel()
+        {
+            return done.compareAndSet(false, true);
+        }
+    }
+}
@@ -15,17 +15,19 @@
  */
 package com.jagrosh.jmusicbot;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import com.jagrosh.jdautilities.commons.waiter.EventWaiter;
 import com.jagrosh.jmusicbot.audio.AloneInVoiceHandler;
 import com.jagrosh.jmusicbot.audio.AudioHandler;
 import com.jagrosh.jmusicbot.audio.NowplayingHandler;
 import com.jagrosh.jmusicbot.audio.PlayerManager;
 import com.jagrosh.jmusicbot.gui.GUI;
+import com.jagrosh.jmusicbot.metrics.MetricsRegistry;
+import com.jagrosh.jmusicbot.metrics.MetricsServer;
+import com.jagrosh.jmusicbot.metrics.PlayTracer;
 import com.jagrosh.jmusicbot.playlist.PlaylistLoader;
 import com.jagrosh.jmusicbot.settings.SettingsManager;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Activity;
 import net.dv8tion.jda.api.entities.Guild;
@@ -37,25 +39,35 @@ import net.dv8tion.jda.api.entities.Guild;
 public class Bot
 {
     private final EventWaiter waiter;
-    private final ScheduledExecutorService threadpool;
+    private final Schedulers schedulers;
     private final BotConfig config;
     private final SettingsManager settings;
     private final PlayerManager players;
     private final PlaylistLoader playlists;
     private final NowplayingHandler nowplaying;
     private final AloneInVoiceHandler aloneInVoiceHandler;
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final PlayTracer tracer = new PlayTracer();
     
     private boolean shuttingDown = false;
     private JDA jda;
     private GUI gui;
+    private MetricsServer metricsServer;
     
-    public Bot(EventWaiter waiter, BotConfig config, SettingsManager settings)
+    public Bot(EventWaiter waiter, BotConfig config, SettingsManager settings, Schedulers schedulers)
     {
         this.waiter = waiter;
         this.config = config;
         this.settings = settings;
-        this.playlists = new PlaylistLoader(config);
-        this.threadpool = Executors.newSingleThreadScheduledExecutor();
+        this.schedulers = schedulers;
+        metrics.histogram("jmusicbot_settings_write_duration_seconds", "Time taken to write guild settings to disk", 
+                settings.getWriteLatency());
+        metrics.gauge("jmusicbot_guilds", "Guilds the bot is in", () -> jda == null ? 0 : jda.getGuildCache().size());
+        metrics.gauge("jmusicbot_memory_used_bytes", "Memory used by the JVM", 
+                () -> Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory());
+        tracer.register(metrics);
+        schedulers.getMaintenance().scheduleWithFixedDelay("play-trace-sweep", tracer::sweep, 1, 1, TimeUnit.MINUTES);
+        this.playlists = new PlaylistLoader(config, schedulers.getMaintenance());
         this.players = new PlayerManager(this);
         this.players.init();
         this.nowplaying = new NowplayingHandler(this);
@@ -79,9 +91,9 @@ public class Bot
         return waiter;
     }
     
-    public ScheduledExecutorService getThreadpool()
+    public Schedulers getSchedulers()
     {
-        return threadpool;
+        return schedulers;
     }
     
     public PlayerManager getPlayerManager()
@@ -104,6 +116,16 @@ public class Bot
         return aloneInVoiceHandler;
     }
     
+    public MetricsRegistry getMetrics()
+    {
+        return metrics;
+    }
+    
+    public PlayTracer getPlayTracer()
+    {
+        return tracer;
+    }
+    
     public JDA getJDA()
     {
         return jda;
@@ -113,7 +135,7 @@ public class Bot
     {
         Guild guild = jda.getGuildById(guildId);
         if(guild!=null)
-            threadpool.submit(() -> guild.getAudioManager().closeAudioConnection());
+            schedulers.getVoice().submit("close-connection", () -> guild.getAudioManager().closeAudioConnection());
     }
     
     public void resetGame()
@@ -128,7 +150,7 @@ public class Bot
         if(shuttingDown)
             return;
         shuttingDown = true;
-        threadpool.shutdownNow();
+        schedulers.shutdown();
         if(jda.getStatus()!=JDA.Status.SHUTTING_DOWN)
         {
             jda.getGuilds().stream().forEach(g -> 
@@ -145,6 +167,10 @@ public class Bot
         }
         if(gui!=null)
             gui.dispose();
+        if(metricsServer!=null)
+            metricsServer.stop();
+        playlists.shutdown();
+        settings.shutdown();
         System.exit(0);
     }
 
@@ -157,4 +183,9 @@ public class Bot
     {
         this.gui = gui;
     }
+    
+    public void setMetricsServer(MetricsServer metricsServer)
+    {
+        this.metricsServer = metricsServer;
+    }
 }
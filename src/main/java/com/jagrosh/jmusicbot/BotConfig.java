@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import net.dv8tion.jda.api.OnlineStatus;
@@ -45,16 +46,17 @@ public class BotConfig
     private String token, prefix, altprefix, helpWord, playlistsFolder, logLevel,
             successEmoji, warningEmoji, errorEmoji, loadingEmoji, searchingEmoji,
             evalEngine;
-    private boolean stayInChannel, songInGame, npImages, updatealerts, useEval, dbots;
+    private boolean stayInChannel, songInGame, npImages, updatealerts, useEval, dbots, lazySettings, asyncCommands;
     private boolean youtubeOauthEnabled;
     private String youtubeOauthRefreshToken;
     private String youtubeRemoteCipherUrl, youtubeRemoteCipherPassword, youtubeRemoteCipherUserAgent;
-    private long owner, maxSeconds, aloneTimeUntilStop;
-    private int maxYTPlaylistPages;
+    private String metricsHost;
+    private long owner, maxSeconds, aloneTimeUntilStop, playlistCacheTime, searchCacheTime;
+    private int maxYTPlaylistPages, frameBufferDuration, playlistConcurrency, searchCacheSize, commandQueue, linkedReplies, metricsPort;
     private double skipratio;
     private OnlineStatus status;
     private Activity game;
-    private Config aliases, transforms;
+    private Config aliases, transforms, threads;
 
     private boolean valid = false;
     
@@ -105,9 +107,21 @@ public class BotConfig
             maxSeconds = config.getLong("maxtime");
             maxYTPlaylistPages = config.getInt("maxytplaylistpages");
             aloneTimeUntilStop = config.getLong("alonetimeuntilstop");
+            frameBufferDuration = config.getInt("framebuffer");
+            lazySettings = config.getBoolean("lazysettings");
+            asyncCommands = config.getBoolean("asynccommands");
+            commandQueue = config.getInt("commandqueue");
+            linkedReplies = config.getInt("linkedreplies");
+            metricsHost = config.getString("metrics.host");
+            metricsPort = config.getInt("metrics.port");
+            searchCacheSize = config.getInt("searchcachesize");
+            searchCacheTime = TimeUnit.MINUTES.toMillis(config.getLong("searchcacheminutes"));
+            playlistConcurrency = config.getInt("playlistconcurrency");
+            playlistCacheTime = TimeUnit.HOURS.toMillis(config.getLong("playlistcachehours"));
             playlistsFolder = config.getString("playlistsfolder");
             aliases = config.getConfig("aliases");
             transforms = config.getConfig("transforms");
+            threads = config.getConfig("threads");
             skipratio = config.getDouble("skipratio");
             dbots = owner == 113156185389092864L;
             
@@ -459,6 +473,61 @@ public class BotConfig
         return aloneTimeUntilStop;
     }
     
+    public int getFrameBufferDuration()
+    {
+        return frameBufferDuration;
+    }
+    
+    public int getSearchCacheSize()
+    {
+        return searchCacheSize;
+    }
+    
+    public long getSearchCacheTime()
+    {
+        return searchCacheTime;
+    }
+    
+    public int getPlaylistConcurrency()
+    {
+        return playlistConcurrency;
+    }
+    
+    public long getPlaylistCacheTime()
+    {
+        return playlistCacheTime;
+    }
+    
+    public boolean useLazySettings()
+    {
+        return lazySettings;
+    }
+    
+    public boolean useAsyncCommands()
+    {
+        return asyncCommands;
+    }
+    
+    public int getCommandQueue()
+    {
+        return commandQueue;
+    }
+    
+    public int getLinkedReplies()
+    {
+        return linkedReplies;
+    }
+    
+    public String getMetricsHost()
+    {
+        return metricsHost;
+    }
+    
+    public int getMetricsPort()
+    {
+        return metricsPort;
+    }
+    
     public boolean isTooLong(AudioTrack track)
     {
         if(maxSeconds<=0)
@@ -482,4 +551,16 @@ public class BotConfig
     {
         return transforms;
     }
+    
+    public int getThreads(String pool)
+    {
+        try
+        {
+            return Math.max(1, threads.getInt(pool));
+        }
+        catch(NullPointerException | ConfigException e)
+        {
+            return 1;
+        }
+    }
 }
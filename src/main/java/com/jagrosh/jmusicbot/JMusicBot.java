@@ -26,9 +26,11 @@ import com.jagrosh.jmusicbot.commands.music.*;
 import com.jagrosh.jmusicbot.commands.owner.*;
 import com.jagrosh.jmusicbot.entities.Prompt;
 import com.jagrosh.jmusicbot.gui.GUI;
+import com.jagrosh.jmusicbot.metrics.MetricsServer;
 import com.jagrosh.jmusicbot.settings.SettingsManager;
 import com.jagrosh.jmusicbot.utils.OtherUtil;
 import java.awt.Color;
+import java.io.IOException;
 import java.util.Arrays;
 import net.dv8tion.jda.api.*;
 import net.dv8tion.jda.api.entities.Activity;
@@ -88,10 +90,30 @@ public class JMusicBot
                 Level.toLevel(config.getLogLevel(), Level.INFO));
         
         // set up the listener
-        EventWaiter waiter = new EventWaiter();
-        SettingsManager settings = new SettingsManager();
-        Bot bot = new Bot(waiter, config, settings);
+        Schedulers schedulers = new Schedulers(config);
+        EventWaiter waiter = new EventWaiter(schedulers.getWaiter(), true);
+        SettingsManager settings = new SettingsManager(config.useLazySettings());
+        // changes are written behind, so write out whatever is pending however the process ends
+        Runtime.getRuntime().addShutdownHook(new Thread(settings::shutdown, "settings-shutdown"));
+        Bot bot = new Bot(waiter, config, settings, schedulers);
         CommandClient client = createCommandClient(config, settings, bot);
+        bot.getMetrics().histogram("jmusicbot_command_duration_seconds", "Time taken to run each command", 
+                "command", client::getCommandLatencies);
+        bot.getMetrics().histogram("jmusicbot_command_queue_seconds", "Time commands waited before starting to run", 
+                client.getCommandQueueLatency());
+        if(config.getMetricsPort() > 0)
+        {
+            try
+            {
+                MetricsServer server = MetricsServer.start(bot.getMetrics(), config.getMetricsHost(), config.getMetricsPort());
+                bot.setMetricsServer(server);
+                LOG.info("Serving metrics on http://" + config.getMetricsHost() + ":" + server.getPort() + "/metrics");
+            }
+            catch(IOException ex)
+            {
+                LOG.warn("Could not start the metrics server: " + ex);
+            }
+        }
         
         
         if(!prompt.isNoGUI())
@@ -177,7 +199,9 @@ public class JMusicBot
                 .setOwnerId(Long.toString(config.getOwnerId()))
                 .setEmojis(config.getSuccess(), config.getWarning(), config.getError())
                 .setHelpWord(config.getHelp())
-                .setLinkedCacheSize(200)
+                .setLinkedCacheSize(config.getLinkedReplies())
+                .setScheduleExecutor(bot.getSchedulers().getCommands())
+                .setCommandExecutor(config.useAsyncCommands() ? bot.getSchedulers().getDispatch() : null, config.getCommandQueue())
                 .setGuildSettingsManager(settings)
                 .addCommands(aboutCommand,
                         new PingCommand(),
@@ -216,6 +240,7 @@ public class JMusicBot
                         new AuthCmd(bot),
                         new DebugCmd(bot),
                         new PlaylistCmd(bot),
+                        new PlaytraceCmd(bot),
                         new SetavatarCmd(bot),
                         new SetgameCmd(bot),
                         new SetnameCmd(bot),
@@ -69,7 +69,7 @@ public class Listener extends ListenerAdapter
         });
         if(bot.getConfig().useUpdateAlerts())
         {
-            bot.getThreadpool().scheduleWithFixedDelay(() -> 
+            bot.getSchedulers().getMaintenance().scheduleWithFixedDelay("update-check", () -> 
             {
                 try
                 {
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.utils.TaskPool;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The thread pools the bot runs its background work on. Each kind of work gets its own pool, so
+ * that a slow call in one (such as a REST call that is being rate limited) doesn't hold up the
+ * others. Pool sizes come from the {@code threads} section of the config.
+ */
+public class Schedulers
+{
+    private final TaskPool nowplaying, voice, maintenance, commands, waiter, dispatch;
+    
+    public Schedulers(BotConfig config)
+    {
+        this.nowplaying = new TaskPool("nowplaying", config.getThreads("nowplaying"));
+        this.voice = new TaskPool("voice", config.getThreads("voice"));
+        this.maintenance = new TaskPool("maintenance", config.getThreads("maintenance"));
+        this.commands = new TaskPool("commands", config.getThreads("commands"));
+        this.waiter = new TaskPool("waiter", config.getThreads("waiter"));
+        this.dispatch = new TaskPool("dispatch", config.getThreads("dispatch"));
+    }
+    
+    /**
+     * @return the pool that keeps now playing messages up to date
+     */
+    public TaskPool getNowplaying()
+    {
+        return nowplaying;
+    }
+    
+    /**
+     * @return the pool for voice connection work, such as leaving empty channels
+     */
+    public TaskPool getVoice()
+    {
+        return voice;
+    }
+    
+    /**
+     * @return the pool for occasional work, such as checking for updates or starting to load a playlist
+     */
+    public TaskPool getMaintenance()
+    {
+        return maintenance;
+    }
+    
+    /**
+     * @return the pool the command client runs its scheduled work on
+     */
+    public TaskPool getCommands()
+    {
+        return commands;
+    }
+    
+    /**
+     * @return the pool the event waiter runs its timeouts on
+     */
+    public TaskPool getWaiter()
+    {
+        return waiter;
+    }
+    
+    /**
+     * @return the pool commands run on, when they aren't run on the thread that received them
+     */
+    public TaskPool getDispatch()
+    {
+        return dispatch;
+    }
+    
+    public List<TaskPool> getPools()
+    {
+        return Arrays.asList(nowplaying, voice, maintenance, commands, waiter, dispatch);
+    }
+    
+    public void shutdown()
+    {
+        getPools().forEach(TaskPool::shutdownNow);
+    }
+}
@@ -20,16 +20,18 @@ import com.jagrosh.jmusicbot.queue.AbstractQueue;
 import com.jagrosh.jmusicbot.settings.QueueType;
 import com.jagrosh.jmusicbot.utils.TimeUtil;
 import com.jagrosh.jmusicbot.settings.RepeatMode;
+import com.sedmelluq.discord.lavaplayer.format.StandardAudioDataFormats;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
 import com.sedmelluq.discord.lavaplayer.player.event.AudioEventAdapter;
 import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrackEndReason;
-import com.sedmelluq.discord.lavaplayer.track.playback.AudioFrame;
+import com.sedmelluq.discord.lavaplayer.track.playback.MutableAudioFrame;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import com.jagrosh.jmusicbot.settings.Settings;
 import com.jagrosh.jmusicbot.utils.FormatUtil;
 import com.sedmelluq.discord.lavaplayer.source.youtube.YoutubeAudioTrack;
@@ -61,46 +63,134 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
     private final AudioPlayer audioPlayer;
     private final long guildId;
     
-    private AudioFrame lastFrame;
-    private AbstractQueue<QueuedTrack> queue;
+    // the player writes each frame into this one buffer, so sending audio allocates nothing
+    private final ByteBuffer frameBuffer = ByteBuffer.allocateDirect(StandardAudioDataFormats.DISCORD_OPUS.maximumChunkSize());
+    private final MutableAudioFrame frame = new MutableAudioFrame();
+    private final AtomicLong framesSent = new AtomicLong();
+    private final AtomicLong underruns = new AtomicLong();
+    // set while the playing track hasn't sent a frame since it started or was seeked, when
+    // silence is expected rather than an underrun
+    private volatile boolean buffering = true;
+    private volatile AbstractQueue<QueuedTrack> queue;
+    private volatile long tracedFirstFrame = 0; // the play request waiting on the next frame, if any
 
     protected AudioHandler(PlayerManager manager, Guild guild, AudioPlayer player)
     {
         this.manager = manager;
         this.audioPlayer = player;
         this.guildId = guild.getIdLong();
+        this.frame.setBuffer(frameBuffer);
 
         this.setQueueType(manager.getBot().getSettingsManager().getSettings(guildId).getQueueType());
     }
 
     public void setQueueType(QueueType type)
     {
-        queue = type.createInstance(queue);
+        if(queue == null)
+        {
+            queue = type.createInstance(null);
+            return;
+        }
+        synchronized(queue.getLock())
+        {
+            queue = type.createInstance(queue);
+        }
     }
 
     public int addTrackToFront(QueuedTrack qtrack)
     {
-        if(audioPlayer.getPlayingTrack()==null)
+        while(true)
         {
-            audioPlayer.playTrack(qtrack.getTrack());
-            return -1;
+            synchronized(queue.getLock())
+            {
+                if(audioPlayer.getPlayingTrack()!=null)
+                {
+                    queue.addAt(0, qtrack);
+                    return 0;
+                }
+            }
+            if(audioPlayer.startTrack(qtrack.getTrack(), true))
+                return -1;
         }
-        else
+    }
+    
+    public int addTrack(QueuedTrack qtrack)
+    {
+        // Lavaplayer fires onTrackEnd while holding its own track lock, and onTrackEnd then takes
+        // the queue lock, so the player must never be started while the queue lock is held here.
+        // Instead, a track is queued under the lock if something is playing, and is otherwise
+        // started without interrupting; if another thread won that race, we queue it after all.
+        while(true)
         {
-            queue.addAt(0, qtrack);
-            return 0;
+            synchronized(queue.getLock())
+            {
+                if(audioPlayer.getPlayingTrack()!=null)
+                    return queue.add(qtrack);
+            }
+            if(audioPlayer.startTrack(qtrack.getTrack(), true))
+                return -1;
         }
     }
     
-    public int addTrack(QueuedTrack qtrack)
+    /**
+     * Adds a batch of tracks, starting the first one if nothing is playing, and places the rest
+     * with a single queue operation.
+     *
+     * @param qtracks the tracks to add, in order
+     * @return the queue position of each track, or -1 for a track that started playing
+     */
+    public int[] addTracks(List<QueuedTrack> qtracks)
     {
-        if(audioPlayer.getPlayingTrack()==null)
+        int[] positions = new int[qtracks.size()];
+        int start = 0;
+        while(start < qtracks.size())
         {
-            audioPlayer.playTrack(qtrack.getTrack());
-            return -1;
+            // same lock order as addTrack
+            synchronized(queue.getLock())
+            {
+                if(audioPlayer.getPlayingTrack()!=null)
+                {
+                    int[] queued = queue.addAll(qtracks.subList(start, qtracks.size()));
+                    System.arraycopy(queued, 0, positions, start, queued.length);
+                    return positions;
+                }
+            }
+            if(audioPlayer.startTrack(qtracks.get(start).getTrack(), true))
+                positions[start++] = -1;
         }
-        else
-            return queue.add(qtrack);
+        return positions;
+    }
+    
+    /**
+     * Has the next frame sent finish tracing a play request, whose track was just started.
+     * 
+     * @param id the id of the command message
+     */
+    public void traceFirstFrame(long id)
+    {
+        tracedFirstFrame = id;
+    }
+    
+    /**
+     * Seeks a track, without counting the gap while it buffers at the new position as underruns.
+     * 
+     * @param track the playing track
+     * @param position the position to seek to, in milliseconds
+     */
+    public void seek(AudioTrack track, long position)
+    {
+        buffering = true;
+        track.setPosition(position);
+    }
+    
+    public long getFramesSent()
+    {
+        return framesSent.get();
+    }
+    
+    public long getUnderruns()
+    {
+        return underruns.get();
     }
     
     public AbstractQueue<QueuedTrack> getQueue()
@@ -110,8 +200,11 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
     
     public void stopAndClear()
     {
-        queue.clear();
-        defaultQueue.clear();
+        synchronized(queue.getLock())
+        {
+            queue.clear();
+            defaultQueue.clear();
+        }
         audioPlayer.stopTrack();
         //current = null;
     }
@@ -141,9 +234,14 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
     
     public boolean playFromDefault()
     {
-        if(!defaultQueue.isEmpty())
+        AudioTrack next;
+        synchronized(queue.getLock())
+        {
+            next = defaultQueue.isEmpty() ? null : defaultQueue.remove(0);
+        }
+        if(next != null)
         {
-            audioPlayer.playTrack(defaultQueue.remove(0));
+            audioPlayer.playTrack(next);
             return true;
         }
         Settings settings = manager.getBot().getSettingsManager().getSettings(guildId);
@@ -153,12 +251,22 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
         Playlist pl = manager.getBot().getPlaylistLoader().getPlaylist(settings.getDefaultPlaylist());
         if(pl==null || pl.getItems().isEmpty())
             return false;
-        pl.loadTracks(manager, (at) -> 
+        pl.loadTracks(manager, (tracks) -> 
         {
-            if(audioPlayer.getPlayingTrack()==null)
-                audioPlayer.playTrack(at);
-            else
-                defaultQueue.add(at);
+            int start = 0;
+            while(start < tracks.size())
+            {
+                synchronized(queue.getLock())
+                {
+                    if(audioPlayer.getPlayingTrack()!=null)
+                    {
+                        defaultQueue.addAll(tracks.subList(start, tracks.size()));
+                        return;
+                    }
+                }
+                if(audioPlayer.startTrack(tracks.get(start), true))
+                    start++;
+            }
         }, () -> 
         {
             if(pl.getTracks().isEmpty() && !manager.getBot().getConfig().getStay())
@@ -171,33 +279,45 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
     @Override
     public void onTrackEnd(AudioPlayer player, AudioTrack track, AudioTrackEndReason endReason) 
     {
-        RepeatMode repeatMode = manager.getBot().getSettingsManager().getSettings(guildId).getRepeatMode();
-        // if the track ended normally, and we're in repeat mode, re-add it to the queue
-        if(endReason==AudioTrackEndReason.FINISHED && repeatMode != RepeatMode.OFF)
+        // a traced track that ended before making a sound isn't what the next frame belongs to
+        if(tracedFirstFrame != 0)
         {
-            QueuedTrack clone = new QueuedTrack(track.makeClone(), track.getUserData(RequestMetadata.class));
-            if(repeatMode == RepeatMode.ALL)
-                queue.add(clone);
-            else
-                queue.addAt(0, clone);
+            manager.getBot().getPlayTracer().discard(tracedFirstFrame);
+            tracedFirstFrame = 0;
         }
-        
-        if(queue.isEmpty())
+        RepeatMode repeatMode = manager.getBot().getSettingsManager().getSettings(guildId).getRepeatMode();
+        // this runs under the player's track lock, so taking the queue lock here keeps the
+        // lock order (player, then queue) the same as everywhere else
+        synchronized(queue.getLock())
         {
-            if(!playFromDefault())
+            // if the track ended normally, and we're in repeat mode, re-add it to the queue
+            if(endReason==AudioTrackEndReason.FINISHED && repeatMode != RepeatMode.OFF)
             {
-                manager.getBot().getNowplayingHandler().onTrackUpdate(null);
-                if(!manager.getBot().getConfig().getStay())
-                    manager.getBot().closeAudioConnection(guildId);
-                // unpause, in the case when the player was paused and the track has been skipped.
-                // this is to prevent the player being paused next time it's being used.
-                player.setPaused(false);
+                QueuedTrack clone = new QueuedTrack(track.makeClone(), track.getUserData(RequestMetadata.class));
+                if(repeatMode == RepeatMode.ALL)
+                    queue.add(clone);
+                else
+                    queue.addAt(0, clone);
+            }
+
+            if(queue.isEmpty())
+            {
+                if(!playFromDefault())
+                {
+                    manager.getBot().getNowplayingHandler().onTrackUpdate(null);
+                    manager.getBot().getNowplayingHandler().onPlayerUpdate(guildId);
+                    if(!manager.getBot().getConfig().getStay())
+                        manager.getBot().closeAudioConnection(guildId);
+                    // unpause, in the case when the player was paused and the track has been skipped.
+                    // this is to prevent the player being paused next time it's being used.
+                    player.setPaused(false);
+                }
+            }
+            else
+            {
+                QueuedTrack qt = queue.pull();
+                player.playTrack(qt.getTrack());
             }
-        }
-        else
-        {
-            QueuedTrack qt = queue.pull();
-            player.playTrack(qt.getTrack());
         }
     }
 
@@ -209,8 +329,23 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
     @Override
     public void onTrackStart(AudioPlayer player, AudioTrack track) 
     {
+        buffering = true;
         votes.clear();
+        manager.rememberTrack(track);
         manager.getBot().getNowplayingHandler().onTrackUpdate(track);
+        manager.getBot().getNowplayingHandler().onPlayerUpdate(guildId);
+    }
+
+    @Override
+    public void onPlayerPause(AudioPlayer player)
+    {
+        manager.getBot().getNowplayingHandler().onPlayerUpdate(guildId);
+    }
+
+    @Override
+    public void onPlayerResume(AudioPlayer player)
+    {
+        manager.getBot().getNowplayingHandler().onPlayerUpdate(guildId);
     }
 
     
@@ -306,14 +441,28 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
     @Override
     public boolean canProvide() 
     {
-        lastFrame = audioPlayer.provide();
-        return lastFrame != null;
+        if(audioPlayer.provide(frame))
+        {
+            framesSent.incrementAndGet();
+            buffering = false;
+            if(tracedFirstFrame != 0)
+            {
+                manager.getBot().getPlayTracer().finish(tracedFirstFrame);
+                tracedFirstFrame = 0;
+            }
+            return true;
+        }
+        // a track is playing but its frame buffer ran dry, so this 20 ms slot goes silent
+        if(!buffering && audioPlayer.getPlayingTrack()!=null && !audioPlayer.isPaused())
+            underruns.incrementAndGet();
+        return false;
     }
 
     @Override
     public ByteBuffer provide20MsAudio() 
     {
-        return ByteBuffer.wrap(lastFrame.getData());
+        // JDA reads the frame out before asking for the next one, so the buffer can be reused
+        return frameBuffer.flip();
     }
 
     @Override
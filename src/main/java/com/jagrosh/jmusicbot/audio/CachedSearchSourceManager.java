@@ -0,0 +1,136 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.source.AudioSourceManager;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageInput;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageOutput;
+import com.sedmelluq.discord.lavaplayer.track.AudioItem;
+import com.sedmelluq.discord.lavaplayer.track.AudioReference;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import com.sedmelluq.discord.lavaplayer.track.BasicAudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.DecodedTrackHolder;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Answers searches that were made recently from a {@link SearchCache} of encoded tracks. It is
+ * registered ahead of the real source managers, so a hit never leaves the bot and is still
+ * delivered in order with the guild's other loads; a miss falls through to them.
+ *
+ * @see PlayerManager#loadItemOrdered(Object, String, com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler)
+ */
+public class CachedSearchSourceManager implements AudioSourceManager
+{
+    private final SearchCache<List<byte[]>> cache;
+    
+    public CachedSearchSourceManager(SearchCache<List<byte[]>> cache)
+    {
+        this.cache = cache;
+    }
+    
+    @Override
+    public String getSourceName()
+    {
+        return "searchcache";
+    }
+
+    @Override
+    public AudioItem loadItem(AudioPlayerManager manager, AudioReference reference)
+    {
+        String key = SearchCache.key(reference.identifier);
+        if(key == null)
+            return null;
+        List<byte[]> encoded = cache.get(key);
+        if(encoded == null)
+            return null;
+        try
+        {
+            // decoded every time, so nobody shares track instances
+            List<AudioTrack> tracks = new ArrayList<>(encoded.size());
+            for(byte[] track : encoded)
+            {
+                DecodedTrackHolder holder = manager.decodeTrack(new MessageInput(new ByteArrayInputStream(track)));
+                if(holder == null || holder.decodedTrack == null)
+                    throw new IOException("Track could not be decoded");
+                tracks.add(holder.decodedTrack);
+            }
+            return new BasicAudioPlaylist("Search results for: " + key.substring(key.indexOf(':') + 1), tracks, null, true);
+        }
+        catch(IOException ex)
+        {
+            cache.remove(key);
+            return null;
+        }
+    }
+    
+    /**
+     * Remembers the result of a search that went to the network.
+     * 
+     * @param manager the manager to encode the tracks with
+     * @param key the normalized search
+     * @param tracks the results
+     */
+    void store(AudioPlayerManager manager, String key, List<AudioTrack> tracks)
+    {
+        try
+        {
+            List<byte[]> encoded = new ArrayList<>(tracks.size());
+            for(AudioTrack track : tracks)
+            {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                manager.encodeTrack(new MessageOutput(out), track);
+                encoded.add(out.toByteArray());
+            }
+            cache.put(key, encoded);
+        }
+        catch(IOException ignored) {}
+    }
+    
+    public SearchCache<List<byte[]>> getCache()
+    {
+        return cache;
+    }
+
+    @Override
+    public boolean isTrackEncodable(AudioTrack track)
+    {
+        // the tracks handed out belong to the source managers that found them
+        return false;
+    }
+
+    @Override
+    public void encodeTrack(AudioTrack track, DataOutput output) throws IOException
+    {
+        // never called, as no track is encodable by this manager
+    }
+
+    @Override
+    public AudioTrack decodeTrack(AudioTrackInfo trackInfo, DataInput input) throws IOException
+    {
+        return null;
+    }
+
+    @Override
+    public void shutdown() {}
+}
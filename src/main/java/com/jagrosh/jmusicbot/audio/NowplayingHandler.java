@@ -16,20 +16,19 @@
 package com.jagrosh.jmusicbot.audio;
 
 import com.jagrosh.jmusicbot.Bot;
-import com.jagrosh.jmusicbot.entities.Pair;
-import com.jagrosh.jmusicbot.settings.Settings;
+import com.jagrosh.jmusicbot.utils.FormatUtil;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import net.dv8tion.jda.api.Permission;
+import java.util.concurrent.atomic.LongAdder;
+import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Activity;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
-import net.dv8tion.jda.api.exceptions.PermissionException;
-import net.dv8tion.jda.api.exceptions.RateLimitedException;
+import net.dv8tion.jda.api.entities.channel.unions.AudioChannelUnion;
 import net.dv8tion.jda.api.utils.messages.MessageCreateData;
 import net.dv8tion.jda.api.utils.messages.MessageEditData;
 
@@ -39,24 +38,35 @@ import net.dv8tion.jda.api.utils.messages.MessageEditData;
  */
 public class NowplayingHandler
 {
+    private final static int SLOTS = 5; // seconds between looking at each message
+    private final static int MAX_EDITS_PER_TICK = 20;
+    
     private final Bot bot;
-    private final HashMap<Long,Pair<Long,Long>> lastNP; // guild -> channel,message
+    private final Map<Long,NowplayingMessage> lastNP = new ConcurrentHashMap<>(); // guild -> message
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet(); // guilds to look at on the next tick
+    private LongAdder edits;
+    private int tick = 0;
     
     public NowplayingHandler(Bot bot)
     {
         this.bot = bot;
-        this.lastNP = new HashMap<>();
     }
     
     public void init()
     {
+        edits = bot.getMetrics().counter("jmusicbot_nowplaying_edits_total", "Now playing messages edited to show a change");
+        // every message is looked at once per SLOTS ticks, in its own tick, so edits are spread out
         if(!bot.getConfig().useNPImages())
-            bot.getThreadpool().scheduleWithFixedDelay(() -> updateAll(), 0, 5, TimeUnit.SECONDS);
+            bot.getSchedulers().getNowplaying().scheduleWithFixedDelay("nowplaying-update", () -> updateAll(), 0, 1, TimeUnit.SECONDS);
     }
     
     public void setLastNPMessage(Message m)
     {
-        lastNP.put(m.getGuild().getIdLong(), new Pair<>(m.getChannel().getIdLong(), m.getIdLong()));
+        NowplayingMessage np = new NowplayingMessage(m.getChannel().getIdLong(), m.getIdLong());
+        // the message was just rendered, so there is nothing to edit until something changes
+        if(m.getGuild().getAudioManager().getSendingHandler() instanceof AudioHandler)
+            np.state = RenderState.of((AudioHandler) m.getGuild().getAudioManager().getSendingHandler(), m.getGuild());
+        lastNP.put(m.getGuild().getIdLong(), np);
     }
     
     public void clearLastNPMessage(Guild guild)
@@ -64,41 +74,66 @@ public class NowplayingHandler
         lastNP.remove(guild.getIdLong());
     }
     
+    /**
+     * Gets a guild's now playing message looked at on the next tick rather than in its turn, for
+     * changes such as a new track or pausing.
+     * 
+     * @param guildId the guild
+     */
+    public void onPlayerUpdate(long guildId)
+    {
+        if(lastNP.containsKey(guildId))
+            changed.add(guildId);
+    }
+    
     private void updateAll()
     {
-        Set<Long> toRemove = new HashSet<>();
-        for(long guildId: lastNP.keySet())
+        JDA jda = bot.getJDA();
+        int slot = tick++ % SLOTS;
+        int budget = MAX_EDITS_PER_TICK;
+        for(Map.Entry<Long,NowplayingMessage> entry : lastNP.entrySet())
         {
-            Guild guild = bot.getJDA().getGuildById(guildId);
-            if(guild==null)
+            long guildId = entry.getKey();
+            NowplayingMessage np = entry.getValue();
+            if(!changed.remove(guildId) && Math.floorMod(Long.hashCode(guildId), SLOTS) != slot)
+                continue;
+            if(np.editing || budget == 0)
             {
-                toRemove.add(guildId);
+                // look again next tick
+                changed.add(guildId);
                 continue;
             }
-            Pair<Long,Long> pair = lastNP.get(guildId);
-            TextChannel tc = guild.getTextChannelById(pair.getKey());
-            if(tc==null)
+            Guild guild = jda.getGuildById(guildId);
+            TextChannel tc = guild == null ? null : guild.getTextChannelById(np.channelId);
+            if(tc == null || !(guild.getAudioManager().getSendingHandler() instanceof AudioHandler))
             {
-                toRemove.add(guildId);
+                lastNP.remove(guildId, np);
                 continue;
             }
             AudioHandler handler = (AudioHandler)guild.getAudioManager().getSendingHandler();
-            MessageCreateData data = handler.getNowPlaying(bot.getJDA());
-            if(data==null)
+            RenderState state = RenderState.of(handler, guild);
+            if(state.equals(np.state))
+                continue;
+            MessageCreateData data = state.track == null ? null : handler.getNowPlaying(jda);
+            if(data == null)
             {
-                data = handler.getNoMusicPlaying(bot.getJDA());
-                toRemove.add(guildId);
+                data = handler.getNoMusicPlaying(jda);
+                lastNP.remove(guildId, np);
             }
+            budget--;
+            edits.increment();
+            np.state = state;
+            np.editing = true;
             try 
             {
-                tc.editMessageById(pair.getValue(), MessageEditData.fromCreateData(data)).queue(m->{}, t -> lastNP.remove(guildId));
+                tc.editMessageById(np.messageId, MessageEditData.fromCreateData(data))
+                        .queue(m -> np.editing = false, t -> lastNP.remove(guildId, np));
             } 
             catch(Exception e) 
             {
-                toRemove.add(guildId);
+                lastNP.remove(guildId, np);
             }
         }
-        toRemove.forEach(id -> lastNP.remove(id));
     }
 
     // "event"-based methods
@@ -116,10 +151,73 @@ public class NowplayingHandler
     
     public void onMessageDelete(Guild guild, long messageId)
     {
-        Pair<Long,Long> pair = lastNP.get(guild.getIdLong());
-        if(pair==null)
+        NowplayingMessage np = lastNP.get(guild.getIdLong());
+        if(np==null)
             return;
-        if(pair.getValue() == messageId)
-            lastNP.remove(guild.getIdLong());
+        if(np.messageId == messageId)
+            lastNP.remove(guild.getIdLong(), np);
+    }
+    
+    private static class NowplayingMessage
+    {
+        private final long channelId, messageId;
+        private volatile RenderState state;
+        private volatile boolean editing = false;
+        
+        private NowplayingMessage(long channelId, long messageId)
+        {
+            this.channelId = channelId;
+            this.messageId = messageId;
+        }
+    }
+    
+    /**
+     * The parts of a now playing message that change while it is up. The time shown is only
+     * brought up to date along with them.
+     */
+    private static class RenderState
+    {
+        private final AudioTrack track;
+        private final boolean paused;
+        private final int step;
+        private final String volume;
+        private final long channelId;
+        
+        private RenderState(AudioTrack track, boolean paused, int step, String volume, long channelId)
+        {
+            this.track = track;
+            this.paused = paused;
+            this.step = step;
+            this.volume = volume;
+            this.channelId = channelId;
+        }
+        
+        private static RenderState of(AudioHandler handler, Guild guild)
+        {
+            String volume = FormatUtil.volumeIcon(handler.getPlayer().getVolume());
+            AudioTrack track = handler.getPlayer().getPlayingTrack();
+            if(track == null || !handler.isMusicPlaying(guild.getJDA()))
+                return new RenderState(null, false, -1, volume, 0L);
+            AudioChannelUnion channel = guild.getSelfMember().getVoiceState().getChannel();
+            // the same steps as the progress bar
+            int step = (int)((double)track.getPosition()/track.getDuration()*12);
+            return new RenderState(track, handler.getPlayer().isPaused(), step, volume, channel == null ? 0L : channel.getIdLong());
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if(!(obj instanceof RenderState))
+                return false;
+            RenderState other = (RenderState) obj;
+            return track == other.track && paused == other.paused && step == other.step 
+                    && volume.equals(other.volume) && channelId == other.channelId;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return System.identityHashCode(track) * 31 + step;
+        }
     }
 }
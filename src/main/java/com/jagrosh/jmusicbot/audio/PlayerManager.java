@@ -16,8 +16,11 @@
 package com.jagrosh.jmusicbot.audio;
 
 import com.dunctebot.sourcemanagers.DuncteBotSources;
+import com.jagrosh.jdautilities.commons.utils.LatencyHistogram;
 import com.jagrosh.jmusicbot.Bot;
+import com.jagrosh.jmusicbot.metrics.MetricsRegistry;
 import com.sedmelluq.discord.lavaplayer.container.MediaContainerRegistry;
+import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
 import com.sedmelluq.discord.lavaplayer.player.DefaultAudioPlayerManager;
 import com.sedmelluq.discord.lavaplayer.source.AudioSourceManagers;
@@ -29,6 +32,11 @@ import com.sedmelluq.discord.lavaplayer.source.nico.NicoAudioSourceManager;
 import com.sedmelluq.discord.lavaplayer.source.soundcloud.SoundCloudAudioSourceManager;
 import com.sedmelluq.discord.lavaplayer.source.twitch.TwitchStreamAudioSourceManager;
 import com.sedmelluq.discord.lavaplayer.source.vimeo.VimeoAudioSourceManager;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.playback.AudioFrameBufferFactory;
+import com.sedmelluq.discord.lavaplayer.track.playback.NonAllocatingAudioFrameBuffer;
 import dev.lavalink.youtube.YoutubeAudioSourceManager;
 import dev.lavalink.youtube.YoutubeSourceOptions;
 import dev.lavalink.youtube.clients.AndroidVr;
@@ -36,6 +44,9 @@ import dev.lavalink.youtube.clients.Music;
 import dev.lavalink.youtube.clients.Tv;
 import dev.lavalink.youtube.clients.Web;
 import dev.lavalink.youtube.clients.WebEmbedded;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
 import net.dv8tion.jda.api.entities.Guild;
 
 /**
@@ -44,8 +55,18 @@ import net.dv8tion.jda.api.entities.Guild;
  */
 public class PlayerManager extends DefaultAudioPlayerManager
 {
+    private final static long RECENT_TRACK_BYTES = 4 * 1024 * 1024;
+    // frames are copied into a ring buffer as they are made, and out of it into each handler's
+    // own buffer (see AudioHandler#canProvide), so playing a track allocates no frame objects
+    final static AudioFrameBufferFactory FRAME_BUFFERS = NonAllocatingAudioFrameBuffer::new;
+    
     private final Bot bot;
+    private final SingleFlightSourceManager flights = new SingleFlightSourceManager();
+    private final RecentTrackSourceManager recent = new RecentTrackSourceManager(new RecentTracks(RECENT_TRACK_BYTES));
     private YoutubeAudioSourceManager youtube;
+    private CachedSearchSourceManager searches;
+    private MetricsRegistry.Labelled<LatencyHistogram> loadLatency;
+    private MetricsRegistry.Labelled<LongAdder> loadFailures, loadNoMatches;
     
     public PlayerManager(Bot bot)
     {
@@ -65,6 +86,16 @@ public class PlayerManager extends DefaultAudioPlayerManager
                     bot.getConfig().getYoutubeRemoteCipherUserAgent()
             );
 
+        // ahead of everything else, so that loads already running, tracks loaded recently and
+        // searches seen before are answered without going to the network
+        registerSourceManager(flights);
+        registerSourceManager(recent);
+        if(bot.getConfig().getSearchCacheSize() > 0 && bot.getConfig().getSearchCacheTime() > 0)
+        {
+            searches = new CachedSearchSourceManager(new SearchCache<>(bot.getConfig().getSearchCacheSize(), bot.getConfig().getSearchCacheTime()));
+            registerSourceManager(searches);
+        }
+
         TransformativeAudioSourceManager.createTransforms(bot.getConfig().getTransforms(), ytOptions).forEach(t -> registerSourceManager(t));
 
         // Include Tv client so OAuth2 can be used for age-restricted content.
@@ -92,6 +123,72 @@ public class PlayerManager extends DefaultAudioPlayerManager
         AudioSourceManagers.registerLocalSource(this);
 
         DuncteBotSources.registerAll(this, "en-US");
+
+        getConfiguration().setFrameBufferFactory(FRAME_BUFFERS);
+        if(bot.getConfig().getFrameBufferDuration() > 0)
+            setFrameBufferDuration(bot.getConfig().getFrameBufferDuration());
+        
+        MetricsRegistry metrics = bot.getMetrics();
+        loadLatency = metrics.histogram("jmusicbot_track_load_duration_seconds", 
+                "Time from asking for a track to it being loaded, by source", "source");
+        loadFailures = metrics.counter("jmusicbot_track_load_failures_total", "Loads that failed, by source", "source");
+        loadNoMatches = metrics.counter("jmusicbot_track_load_no_matches_total", "Loads that found nothing, by source", "source");
+        metrics.counter("jmusicbot_track_loads_merged_total", "Loads answered by a load of the same track already running", 
+                this::getMergedLoads);
+        metrics.counter("jmusicbot_recent_track_hits_total", "Loads answered from recently played tracks", 
+                recent::getHits);
+        if(searches != null)
+        {
+            metrics.counter("jmusicbot_search_cache_hits_total", "Searches answered from the search cache", 
+                    () -> searches.getCache().getHits());
+            metrics.counter("jmusicbot_search_cache_misses_total", "Searches that weren't in the search cache", 
+                    () -> searches.getCache().getMisses());
+        }
+        metrics.counter("jmusicbot_audio_frames_sent_total", "Audio frames sent to Discord", 
+                () -> sumHandlers(AudioHandler::getFramesSent));
+        metrics.counter("jmusicbot_audio_underruns_total", "Audio frames that weren't ready in time while a track was playing", 
+                () -> sumHandlers(AudioHandler::getUnderruns));
+        metrics.gauge("jmusicbot_queued_tracks", "Tracks waiting in every queue", 
+                () -> sumHandlers(handler -> handler.getQueue().size()));
+        metrics.gauge("jmusicbot_playing_guilds", "Guilds with a track playing", 
+                () -> sumHandlers(handler -> handler.getPlayer().getPlayingTrack() == null ? 0 : 1));
+    }
+    
+    private long sumHandlers(ToLongFunction<AudioHandler> value)
+    {
+        if(bot.getJDA() == null)
+            return 0;
+        long sum = 0;
+        for(Guild guild : bot.getJDA().getGuilds())
+        {
+            if(guild.getAudioManager().getSendingHandler() instanceof AudioHandler)
+                sum += value.applyAsLong((AudioHandler) guild.getAudioManager().getSendingHandler());
+        }
+        return sum;
+    }
+    
+    /**
+     * Guesses which source an identifier would be loaded from, for loads that didn't resolve to a track.
+     */
+    private static String sourceOf(String identifier)
+    {
+        if(identifier.startsWith("ytsearch:") || identifier.startsWith("ytmsearch:") 
+                || identifier.contains("youtube.com/") || identifier.contains("youtu.be/"))
+            return "youtube";
+        if(identifier.startsWith("scsearch:") || identifier.contains("soundcloud.com/"))
+            return "soundcloud";
+        if(identifier.contains("bandcamp.com"))
+            return "bandcamp";
+        if(identifier.contains("twitch.tv/"))
+            return "twitch";
+        if(identifier.contains("vimeo.com/"))
+            return "vimeo";
+        return identifier.startsWith("http://") || identifier.startsWith("https://") ? "http" : "local";
+    }
+    
+    private static String sourceOf(AudioTrack track)
+    {
+        return track.getSourceManager() == null ? "unknown" : track.getSourceManager().getSourceName();
     }
     
     public Bot getBot()
@@ -104,6 +201,53 @@ public class PlayerManager extends DefaultAudioPlayerManager
         return youtube;
     }
     
+    /**
+     * Gets the cache of recent searches.
+     * 
+     * @return the cache, or {@code null} if searches aren't cached
+     */
+    public SearchCache<?> getSearchCache()
+    {
+        return searches == null ? null : searches.getCache();
+    }
+    
+    public long getMergedLoads()
+    {
+        return flights.getMerged();
+    }
+    
+    public RecentTrackSourceManager getRecentTracks()
+    {
+        return recent;
+    }
+    
+    /**
+     * Remembers a track that started playing, so that requesting it again is answered
+     * without resolving it.
+     * 
+     * @param track the track
+     */
+    public void rememberTrack(AudioTrack track)
+    {
+        recent.remember(this, track, null);
+    }
+    
+    @Override
+    public Future<Void> loadItem(String identifier, AudioLoadResultHandler resultHandler)
+    {
+        if(identifier == null)
+            return super.loadItem(identifier, resultHandler);
+        return super.loadItem(identifier, flights.handle(identifier, new LoadHandler(identifier, resultHandler)));
+    }
+    
+    @Override
+    public Future<Void> loadItemOrdered(Object orderingKey, String identifier, AudioLoadResultHandler resultHandler)
+    {
+        if(identifier == null)
+            return super.loadItemOrdered(orderingKey, identifier, resultHandler);
+        return super.loadItemOrdered(orderingKey, identifier, flights.handle(identifier, new LoadHandler(identifier, resultHandler)));
+    }
+    
     public boolean hasHandler(Guild guild)
     {
         return guild.getAudioManager().getSendingHandler()!=null;
@@ -124,4 +268,56 @@ public class PlayerManager extends DefaultAudioPlayerManager
             handler = (AudioHandler) guild.getAudioManager().getSendingHandler();
         return handler;
     }
+    
+    /**
+     * Reports the outcome of a load to the recent track and search caches before handing it on.
+     */
+    private class LoadHandler implements AudioLoadResultHandler
+    {
+        private final String identifier, searchKey;
+        private final AudioLoadResultHandler handler;
+        private final long started = System.nanoTime();
+        
+        private LoadHandler(String identifier, AudioLoadResultHandler handler)
+        {
+            this.identifier = identifier;
+            this.searchKey = searches == null ? null : SearchCache.key(identifier);
+            this.handler = handler;
+        }
+        
+        @Override
+        public void trackLoaded(AudioTrack track)
+        {
+            recent.remember(PlayerManager.this, track, identifier);
+            loadLatency.labels(sourceOf(track)).record(System.nanoTime() - started);
+            handler.trackLoaded(track);
+        }
+
+        @Override
+        public void playlistLoaded(AudioPlaylist playlist)
+        {
+            loadLatency.labels(playlist.getTracks().isEmpty() ? sourceOf(identifier) : sourceOf(playlist.getTracks().get(0)))
+                    .record(System.nanoTime() - started);
+            // results served from the cache are stored again, which leaves the entry as it was
+            if(searchKey != null && playlist.isSearchResult() && !playlist.getTracks().isEmpty())
+                searches.store(PlayerManager.this, searchKey, playlist.getTracks());
+            handler.playlistLoaded(playlist);
+        }
+
+        @Override
+        public void noMatches()
+        {
+            loadLatency.labels(sourceOf(identifier)).record(System.nanoTime() - started);
+            loadNoMatches.labels(sourceOf(identifier)).increment();
+            handler.noMatches();
+        }
+
+        @Override
+        public void loadFailed(FriendlyException exception)
+        {
+            loadLatency.labels(sourceOf(identifier)).record(System.nanoTime() - started);
+            loadFailures.labels(sourceOf(identifier)).increment();
+            handler.loadFailed(exception);
+        }
+    }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.source.AudioSourceManager;
+import com.sedmelluq.discord.lavaplayer.source.local.LocalAudioSourceManager;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageInput;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageOutput;
+import com.sedmelluq.discord.lavaplayer.track.AudioItem;
+import com.sedmelluq.discord.lavaplayer.track.AudioReference;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import com.sedmelluq.discord.lavaplayer.track.DecodedTrackHolder;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Answers requests for tracks that were loaded or played recently from {@link RecentTracks},
+ * by the identifier they were requested with, their URI or their source's identifier. It is
+ * registered ahead of the real source managers, so playing a song again doesn't resolve it
+ * over the network, and is still delivered in order with the guild's other loads.
+ */
+public class RecentTrackSourceManager implements AudioSourceManager
+{
+    private final RecentTracks recent;
+    private final LongAdder hits = new LongAdder();
+    
+    public RecentTrackSourceManager(RecentTracks recent)
+    {
+        this.recent = recent;
+    }
+    
+    @Override
+    public String getSourceName()
+    {
+        return "recent";
+    }
+
+    @Override
+    public AudioItem loadItem(AudioPlayerManager manager, AudioReference reference)
+    {
+        byte[] encoded = reference.identifier == null ? null : recent.get(reference.identifier);
+        if(encoded == null)
+            return null;
+        try
+        {
+            // decoded every time, so nobody shares track instances
+            DecodedTrackHolder holder = manager.decodeTrack(new MessageInput(new ByteArrayInputStream(encoded)));
+            if(holder == null || holder.decodedTrack == null)
+                throw new IOException("Track could not be decoded");
+            hits.increment();
+            return holder.decodedTrack;
+        }
+        catch(IOException ex)
+        {
+            recent.remove(reference.identifier);
+            return null;
+        }
+    }
+    
+    /**
+     * Indexes a track that was loaded or started playing.
+     * 
+     * @param manager the manager to encode the track with
+     * @param track the track
+     * @param identifier what the track was requested with, or {@code null}; searches aren't
+     *                   indexed, so that their results can change
+     */
+    void remember(AudioPlayerManager manager, AudioTrack track, String identifier)
+    {
+        // a stream is only good while it's live, and local files are cheap to load and may change
+        if(track.getInfo().isStream || track.getSourceManager() instanceof LocalAudioSourceManager)
+            return;
+        try
+        {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            manager.encodeTrack(new MessageOutput(out), track);
+            recent.put(out.toByteArray(), SearchCache.key(identifier) == null ? identifier : null, track.getInfo().uri, track.getInfo().identifier);
+        }
+        catch(IOException ignored) {}
+    }
+    
+    public RecentTracks getRecentTracks()
+    {
+        return recent;
+    }
+    
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    @Override
+    public boolean isTrackEncodable(AudioTrack track)
+    {
+        // the tracks handed out belong to the source managers that found them
+        return false;
+    }
+
+    @Override
+    public void encodeTrack(AudioTrack track, DataOutput output) throws IOException
+    {
+        // never called, as no track is encodable by this manager
+    }
+
+    @Override
+    public AudioTrack decodeTrack(AudioTrackInfo trackInfo, DataInput input) throws IOException
+    {
+        return null;
+    }
+
+    @Override
+    public void shutdown() {}
+}
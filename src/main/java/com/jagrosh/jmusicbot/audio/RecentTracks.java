@@ -0,0 +1,89 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An index of encoded tracks that were loaded or played recently, by the identifiers they can be
+ * requested with again. The least recently used entries are evicted once the encoded tracks
+ * take up more than a fixed number of bytes.
+ */
+public class RecentTracks
+{
+    private final long maxBytes;
+    private final Map<String, byte[]> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes = 0;
+    
+    public RecentTracks(long maxBytes)
+    {
+        this.maxBytes = maxBytes;
+    }
+    
+    public synchronized byte[] get(String key)
+    {
+        return entries.get(key);
+    }
+    
+    /**
+     * Indexes an encoded track under each of the given keys.
+     * 
+     * @param encoded the encoded track
+     * @param keys what the track can be requested with; {@code null} keys are skipped
+     */
+    public synchronized void put(byte[] encoded, String... keys)
+    {
+        for(String key : keys)
+        {
+            if(key == null)
+                continue;
+            byte[] old = entries.put(key, encoded);
+            bytes += weight(key, encoded) - (old == null ? 0 : weight(key, old));
+        }
+        Iterator<Map.Entry<String, byte[]>> it = entries.entrySet().iterator();
+        while(bytes > maxBytes && it.hasNext())
+        {
+            Map.Entry<String, byte[]> eldest = it.next();
+            bytes -= weight(eldest.getKey(), eldest.getValue());
+            it.remove();
+        }
+    }
+    
+    public synchronized void remove(String key)
+    {
+        byte[] old = entries.remove(key);
+        if(old != null)
+            bytes -= weight(key, old);
+    }
+    
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+    
+    public synchronized long bytes()
+    {
+        return bytes;
+    }
+    
+    private static long weight(String key, byte[] encoded)
+    {
+        // a track indexed under several keys is counted once per key, which errs on the safe side
+        return encoded.length + 2L * key.length();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A size-bounded, least recently used cache of search results, keyed by the normalized search.
+ * Entries expire a fixed time after they were stored.
+ *
+ * @param <V> the cached results
+ */
+public class SearchCache<V>
+{
+    private final static String[] PREFIXES = {"ytsearch:", "ytmsearch:", "scsearch:"};
+    
+    private final int maxSize;
+    private final long ttl;
+    private final LongSupplier clock;
+    private final Map<String, Entry<V>> entries;
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+    
+    /**
+     * @param maxSize the most searches to keep
+     * @param ttl how long a result stays valid, in milliseconds
+     */
+    public SearchCache(int maxSize, long ttl)
+    {
+        this(maxSize, ttl, () -> System.nanoTime() / 1_000_000);
+    }
+    
+    SearchCache(int maxSize, long ttl, LongSupplier clock)
+    {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<String, Entry<V>>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest)
+            {
+                return size() > SearchCache.this.maxSize;
+            }
+        };
+    }
+    
+    /**
+     * Normalizes a search so that searches differing only in case or spacing share an entry.
+     * 
+     * @param identifier what is being loaded
+     * @return the cache key, or {@code null} if the identifier isn't a search
+     */
+    public static String key(String identifier)
+    {
+        if(identifier == null)
+            return null;
+        for(String prefix : PREFIXES)
+        {
+            if(identifier.regionMatches(true, 0, prefix, 0, prefix.length()))
+            {
+                String query = identifier.substring(prefix.length()).trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+                return query.isEmpty() ? null : prefix + query;
+            }
+        }
+        return null;
+    }
+    
+    public synchronized V get(String key)
+    {
+        Entry<V> entry = entries.get(key);
+        if(entry != null && entry.expires - clock.getAsLong() <= 0)
+        {
+            entries.remove(key);
+            entry = null;
+        }
+        if(entry == null)
+        {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+    
+    /**
+     * Stores a result, unless a valid one is already stored, so that serving a result from the
+     * cache doesn't extend how long it lives.
+     * 
+     * @param key the cache key
+     * @param value the result
+     */
+    public synchronized void put(String key, V value)
+    {
+        Entry<V> entry = entries.get(key);
+        long now = clock.getAsLong();
+        if(entry == null || entry.expires - now <= 0)
+            entries.put(key, new Entry<>(value, now + ttl));
+    }
+    
+    public synchronized void remove(String key)
+    {
+        entries.remove(key);
+    }
+    
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+    
+    public long getHits()
+    {
+        return hits.sum();
+    }
+    
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+    
+    private static class Entry<V>
+    {
+        private final V value;
+        private final long expires;
+        
+        private Entry(V value, long expires)
+        {
+            this.value = value;
+            this.expires = expires;
+        }
+    }
+}
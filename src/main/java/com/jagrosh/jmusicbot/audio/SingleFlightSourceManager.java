@@ -0,0 +1,440 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.source.AudioSourceManager;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.track.AudioItem;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioReference;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import com.sedmelluq.discord.lavaplayer.track.BasicAudioPlaylist;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Merges loads of an identifier into one resolution. Every load joins a flight for its
+ * identifier when it is requested; the first of them to run passes through to the real source
+ * managers, and the rest are answered with clones of its result. A load that runs while the
+ * first one is still going doesn't wait for it: it is parked on the flight and answered from
+ * the thread that finishes it, so lavaplayer's loader threads are never held up. The result is
+ * kept until every load that joined has finished, so a load queued behind the first one in the
+ * same guild gets it too.
+ *
+ * <p>Because a parked load finishes when its flight does, it can be answered after a later
+ * load of something else in the same guild.
+ *
+ * <p>Only loads whose handler comes from {@link #handle(String, AudioLoadResultHandler)} take
+ * part; it reports the outcome of the load back to the flights the loading thread claimed.
+ */
+public class SingleFlightSourceManager implements AudioSourceManager
+{
+    private final static Logger LOG = LoggerFactory.getLogger("SingleFlight");
+    private final static long WAIT = 30_000; // milliseconds, before parked loads give up
+
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+    // every flight the current loader thread has claimed, including through redirects
+    private final ThreadLocal<List<Flight>> claimed = ThreadLocal.withInitial(ArrayList::new);
+    private final LongAdder merged = new LongAdder();
+    private final ScheduledThreadPoolExecutor timer;
+    private final long wait;
+
+    public SingleFlightSourceManager()
+    {
+        this(WAIT);
+    }
+
+    SingleFlightSourceManager(long wait)
+    {
+        this.wait = wait;
+        this.timer = new ScheduledThreadPoolExecutor(1, r ->
+        {
+            Thread t = new Thread(r, "singleflight-timeout");
+            t.setDaemon(true);
+            return t;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    @Override
+    public String getSourceName()
+    {
+        return "singleflight";
+    }
+
+    @Override
+    public AudioItem loadItem(AudioPlayerManager manager, AudioReference reference)
+    {
+        Flight flight = reference.identifier == null ? null : flights.get(reference.identifier);
+        if(flight == null)
+            return null;
+        List<Flight> mine = claimed.get();
+        // a load that redirects back to something it is already loading mustn't wait on itself
+        if(mine.contains(flight))
+            return null;
+        if(flight.claim())
+        {
+            mine.add(flight);
+            return null;
+        }
+        return flight.poll();
+    }
+
+    /**
+     * Joins the flight of an identifier when a load of it is requested.
+     *
+     * @param identifier what is being loaded
+     * @param handler the handler of the load
+     * @return the handler to load with, which takes part in the flight
+     */
+    public AudioLoadResultHandler handle(String identifier, AudioLoadResultHandler handler)
+    {
+        Flight flight = flights.compute(identifier, (key, current) ->
+        {
+            if(current == null)
+                current = new Flight(key);
+            current.loads++;
+            return current;
+        });
+        return new FlightHandler(flight, handler);
+    }
+
+    public long getMerged()
+    {
+        return merged.sum();
+    }
+
+    int getFlights()
+    {
+        return flights.size();
+    }
+
+    private void leave(Flight flight)
+    {
+        flights.computeIfPresent(flight.identifier, (key, current) ->
+                current == flight && --current.loads == 0 ? null : current);
+    }
+
+    private static AudioItem copy(AudioItem item)
+    {
+        if(item instanceof AudioTrack)
+            return ((AudioTrack) item).makeClone();
+        if(item instanceof AudioPlaylist)
+        {
+            AudioPlaylist playlist = (AudioPlaylist) item;
+            List<AudioTrack> tracks = new ArrayList<>(playlist.getTracks().size());
+            AudioTrack selected = null;
+            for(AudioTrack track : playlist.getTracks())
+            {
+                AudioTrack clone = track.makeClone();
+                if(track == playlist.getSelectedTrack())
+                    selected = clone;
+                tracks.add(clone);
+            }
+            return new BasicAudioPlaylist(playlist.getName(), tracks, selected, playlist.isSearchResult());
+        }
+        return null;
+    }
+
+    @Override
+    public boolean isTrackEncodable(AudioTrack track)
+    {
+        // the tracks handed out belong to the source managers that found them
+        return false;
+    }
+
+    @Override
+    public void encodeTrack(AudioTrack track, DataOutput output) throws IOException
+    {
+        // never called, as no track is encodable by this manager
+    }
+
+    @Override
+    public AudioTrack decodeTrack(AudioTrackInfo trackInfo, DataInput input) throws IOException
+    {
+        return null;
+    }
+
+    @Override
+    public void shutdown()
+    {
+        timer.shutdownNow();
+    }
+
+    private class Flight
+    {
+        private final String identifier;
+        private boolean claimed = false, finished = false;
+        private AudioItem result; // kept as a template; only ever handed out as copies
+        private FriendlyException failure;
+        private List<FlightHandler> parked; // loads waiting for this flight to finish
+        private ScheduledFuture<?> timeout;
+        private int loads = 0; // guarded by the map
+
+        private Flight(String identifier)
+        {
+            this.identifier = identifier;
+        }
+
+        private synchronized boolean claim()
+        {
+            if(claimed)
+                return false;
+            claimed = true;
+            return true;
+        }
+
+        /**
+         * Answers a load that runs after another one claimed the flight.
+         *
+         * @return a copy of the result, {@code null} to resolve the item as usual if the first
+         *         load came up empty, or a {@link Parked} item if it is still running
+         */
+        private synchronized AudioItem poll()
+        {
+            if(!finished)
+                return new Parked(this);
+            if(result == null)
+                return null;
+            merged.increment();
+            return copy(result);
+        }
+
+        /**
+         * Parks a load on the flight, or answers it right away if the flight has finished since
+         * it was polled.
+         */
+        private void park(FlightHandler handler)
+        {
+            synchronized(this)
+            {
+                if(!finished)
+                {
+                    if(parked == null)
+                    {
+                        parked = new ArrayList<>();
+                        timeout = timer.schedule(this::expire, wait, TimeUnit.MILLISECONDS);
+                    }
+                    parked.add(handler);
+                    merged.increment();
+                    return;
+                }
+            }
+            deliver(handler, false);
+        }
+
+        /**
+         * Records the outcome of the flight.
+         *
+         * @return the parked loads, to be answered once the caller's own handler has been
+         */
+        private List<FlightHandler> finish(AudioItem result, FriendlyException failure)
+        {
+            synchronized(this)
+            {
+                if(finished)
+                    return Collections.emptyList();
+                finished = true;
+                // copied before the caller's handler sees the tracks
+                this.result = result == null ? null : copy(result);
+                this.failure = failure;
+                if(timeout != null)
+                    timeout.cancel(false);
+                List<FlightHandler> waiting = parked == null ? Collections.emptyList() : parked;
+                parked = null;
+                return waiting;
+            }
+        }
+
+        private void expire()
+        {
+            List<FlightHandler> waiting = finish(null, new FriendlyException("Timed out waiting for the track to load.",
+                    FriendlyException.Severity.COMMON, null));
+            for(FlightHandler handler : waiting)
+                deliver(handler, true);
+        }
+
+        private void deliver(FlightHandler handler, boolean counted)
+        {
+            AudioItem item;
+            FriendlyException error;
+            synchronized(this)
+            {
+                item = result == null ? null : copy(result);
+                error = failure;
+            }
+            if(!counted && item != null)
+                merged.increment();
+            try
+            {
+                if(item instanceof AudioTrack)
+                    handler.trackLoaded((AudioTrack) item);
+                else if(item instanceof AudioPlaylist)
+                    handler.playlistLoaded((AudioPlaylist) item);
+                else if(error != null)
+                    handler.loadFailed(error);
+                else
+                    handler.noMatches();
+            }
+            catch(RuntimeException ex)
+            {
+                LOG.error("A merged load of " + identifier + " failed to handle its result", ex);
+            }
+        }
+    }
+
+    /**
+     * Handed to lavaplayer in place of a result when the flight is still running, so that the
+     * load can end and be answered later.
+     */
+    private static class Parked implements AudioPlaylist
+    {
+        private final Flight flight;
+
+        private Parked(Flight flight)
+        {
+            this.flight = flight;
+        }
+
+        @Override
+        public String getName()
+        {
+            return flight.identifier;
+        }
+
+        @Override
+        public List<AudioTrack> getTracks()
+        {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public AudioTrack getSelectedTrack()
+        {
+            return null;
+        }
+
+        @Override
+        public boolean isSearchResult()
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Reports the outcome of a load to the flights it claimed, parks it if its flight is still
+     * running, and leaves its flight once it has been answered.
+     */
+    private class FlightHandler implements AudioLoadResultHandler
+    {
+        private final Flight flight;
+        private final AudioLoadResultHandler handler;
+        private List<Flight> leading; // taken from the loader thread the first time it is needed
+        private boolean answered = false;
+
+        private FlightHandler(Flight flight, AudioLoadResultHandler handler)
+        {
+            this.flight = flight;
+            this.handler = handler;
+        }
+
+        private List<Flight> leading()
+        {
+            if(leading == null)
+            {
+                // a load claims its own flight first; anything before it was left behind by a
+                // load that didn't report back, and its parked loads will time out
+                List<Flight> mine = claimed.get();
+                int own = mine.indexOf(flight);
+                leading = own == -1 ? Collections.emptyList() : new ArrayList<>(mine.subList(own, mine.size()));
+                mine.clear();
+            }
+            return leading;
+        }
+
+        private void answer(AudioItem result, FriendlyException failure, Runnable own)
+        {
+            // lavaplayer reports a failure if a handler throws, so only the first answer counts
+            if(answered)
+            {
+                own.run();
+                return;
+            }
+            answered = true;
+            List<Runnable> waiting = new ArrayList<>();
+            for(Flight led : leading())
+            {
+                for(FlightHandler parked : led.finish(result, failure))
+                    waiting.add(() -> led.deliver(parked, true));
+            }
+            try
+            {
+                own.run();
+            }
+            finally
+            {
+                leave(flight);
+                waiting.forEach(Runnable::run);
+            }
+        }
+
+        @Override
+        public void trackLoaded(AudioTrack track)
+        {
+            answer(track, null, () -> handler.trackLoaded(track));
+        }
+
+        @Override
+        public void playlistLoaded(AudioPlaylist playlist)
+        {
+            if(playlist instanceof Parked && !answered)
+            {
+                // the flights claimed on the way here finish with the one being waited on
+                leading();
+                ((Parked) playlist).flight.park(this);
+                return;
+            }
+            answer(playlist, null, () -> handler.playlistLoaded(playlist));
+        }
+
+        @Override
+        public void noMatches()
+        {
+            answer(null, null, handler::noMatches);
+        }
+
+        @Override
+        public void loadFailed(FriendlyException exception)
+        {
+            answer(null, exception, () -> handler.loadFailed(exception));
+        }
+    }
+}
@@ -20,6 +20,7 @@ import com.jagrosh.jdautilities.command.CommandEvent;
 import com.jagrosh.jmusicbot.Bot;
 import com.jagrosh.jmusicbot.settings.Settings;
 import com.jagrosh.jmusicbot.audio.AudioHandler;
+import com.jagrosh.jmusicbot.metrics.PlayTracer;
 import net.dv8tion.jda.api.entities.GuildVoiceState;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 import net.dv8tion.jda.api.entities.channel.middleman.AudioChannel;
@@ -34,6 +35,7 @@ public abstract class MusicCommand extends Command
     protected final Bot bot;
     protected boolean bePlaying;
     protected boolean beListening;
+    protected boolean traced; // whether to trace the time from this command to its first audio
     
     public MusicCommand(Bot bot)
     {
@@ -45,6 +47,8 @@ public abstract class MusicCommand extends Command
     @Override
     protected void execute(CommandEvent event) 
     {
+        if(traced)
+            bot.getPlayTracer().begin(event.getMessage().getIdLong());
         Settings settings = event.getClient().getSettingsFor(event.getGuild());
         TextChannel tchannel = settings.getTextChannel(event.getGuild());
         if(tchannel!=null && !event.getTextChannel().equals(tchannel))
@@ -95,6 +99,8 @@ public abstract class MusicCommand extends Command
             }
         }
         
+        if(traced)
+            bot.getPlayTracer().mark(event.getMessage().getIdLong(), PlayTracer.Stage.CONNECT);
         doCommand(event);
     }
     
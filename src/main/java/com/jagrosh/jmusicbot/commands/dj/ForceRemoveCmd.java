@@ -91,6 +91,7 @@ public class ForceRemoveCmd extends DJCommand
 
             bot.getWaiter().waitForEvent(
                     MessageReceivedEvent.class,
+                    event.getChannel().getIdLong(),
                     e -> !e.getAuthor().isBot()
                             && e.getAuthor().equals(event.getAuthor())
                             && e.getChannel().equals(event.getChannel()),
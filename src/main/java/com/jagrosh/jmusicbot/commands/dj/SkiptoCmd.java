@@ -50,13 +50,19 @@ public class SkiptoCmd extends DJCommand
             return;
         }
         AudioHandler handler = (AudioHandler)event.getGuild().getAudioManager().getSendingHandler();
-        if(index<1 || index>handler.getQueue().size())
+        String title;
+        synchronized(handler.getQueue().getLock())
         {
-            event.reply(event.getClient().getError()+" Position must be a valid integer between 1 and "+handler.getQueue().size()+"!");
-            return;
+            if(index<1 || index>handler.getQueue().size())
+            {
+                event.reply(event.getClient().getError()+" Position must be a valid integer between 1 and "+handler.getQueue().size()+"!");
+                return;
+            }
+            handler.getQueue().skip(index-1);
+            title = handler.getQueue().get(0).getTrack().getInfo().title;
         }
-        handler.getQueue().skip(index-1);
-        event.reply(event.getClient().getSuccess()+" Skipped to **"+handler.getQueue().get(0).getTrack().getInfo().title+"**");
+        event.reply(event.getClient().getSuccess()+" Skipped to **"+title+"**");
+        // stopping the player takes the player's lock, so it must happen outside the queue lock
         handler.getPlayer().stopTrack();
     }
 }
@@ -29,10 +29,17 @@ import com.jagrosh.jmusicbot.audio.AudioHandler;
 import com.jagrosh.jmusicbot.audio.QueuedTrack;
 import com.jagrosh.jmusicbot.commands.DJCommand;
 import com.jagrosh.jmusicbot.commands.MusicCommand;
+import com.jagrosh.jmusicbot.metrics.PlayTracer;
+import com.jagrosh.jmusicbot.metrics.PlayTracer.Stage;
 import com.jagrosh.jmusicbot.playlist.PlaylistLoader.Playlist;
 import com.jagrosh.jmusicbot.utils.FormatUtil;
 import com.jagrosh.jmusicbot.utils.LoadErrorUtil;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Message;
 
@@ -44,6 +51,7 @@ public class PlayCmd extends MusicCommand
 {
     private final static String LOAD = "\uD83D\uDCE5"; // 📥
     private final static String CANCEL = "\uD83D\uDEAB"; // 🚫
+    private final static long PROGRESS_INTERVAL = 5; // seconds between edits of a loading playlist's message
     
     private final String loadingEmoji;
     
@@ -57,6 +65,7 @@ public class PlayCmd extends MusicCommand
         this.aliases = bot.getConfig().getAliases(this.name);
         this.beListening = true;
         this.bePlaying = false;
+        this.traced = true;
         this.children = new Command[]{new PlaylistCmd(bot)};
     }
 
@@ -65,6 +74,7 @@ public class PlayCmd extends MusicCommand
     {
         if(event.getArgs().isEmpty() && event.getMessage().getAttachments().isEmpty())
         {
+            bot.getPlayTracer().discard(event.getMessage().getIdLong());
             AudioHandler handler = (AudioHandler)event.getGuild().getAudioManager().getSendingHandler();
             if(handler.getPlayer().getPlayingTrack()!=null && handler.getPlayer().isPaused())
             {
@@ -88,7 +98,11 @@ public class PlayCmd extends MusicCommand
         String args = event.getArgs().startsWith("<") && event.getArgs().endsWith(">") 
                 ? event.getArgs().substring(1,event.getArgs().length()-1) 
                 : event.getArgs().isEmpty() ? event.getMessage().getAttachments().get(0).getUrl() : event.getArgs();
-        event.reply(loadingEmoji+" Loading... `["+args+"]`", m -> bot.getPlayerManager().loadItemOrdered(event.getGuild(), args, new ResultHandler(m,event,false)));
+        event.reply(loadingEmoji+" Loading... `["+args+"]`", m -> 
+        {
+            bot.getPlayTracer().mark(event.getMessage().getIdLong(), Stage.REPLY);
+            bot.getPlayerManager().loadItemOrdered(event.getGuild(), args, new ResultHandler(m,event,false));
+        });
     }
     
     private class ResultHandler implements AudioLoadResultHandler
@@ -104,16 +118,33 @@ public class PlayCmd extends MusicCommand
             this.ytsearch = ytsearch;
         }
         
+        /**
+         * Follows the request to its first frame if it started playing, or stops tracing it.
+         */
+        private void traceQueued(AudioHandler handler, boolean started)
+        {
+            PlayTracer tracer = bot.getPlayTracer();
+            long id = event.getMessage().getIdLong();
+            tracer.mark(id, Stage.QUEUE);
+            if(started)
+                handler.traceFirstFrame(id);
+            else
+                tracer.discard(id);
+        }
+        
         private void loadSingle(AudioTrack track, AudioPlaylist playlist)
         {
+            bot.getPlayTracer().mark(event.getMessage().getIdLong(), Stage.LOAD);
             if(bot.getConfig().isTooLong(track))
             {
+                bot.getPlayTracer().discard(event.getMessage().getIdLong());
                 m.editMessage(FormatUtil.filter(event.getClient().getWarning()+" This track (**"+track.getInfo().title+"**) is longer than the allowed maximum: `"
                         + TimeUtil.formatTime(track.getDuration())+"` > `"+ TimeUtil.formatTime(bot.getConfig().getMaxSeconds()*1000)+"`")).queue();
                 return;
             }
             AudioHandler handler = (AudioHandler)event.getGuild().getAudioManager().getSendingHandler();
             int pos = handler.addTrack(new QueuedTrack(track, RequestMetadata.fromResultHandler(track, event)))+1;
+            traceQueued(handler, pos==0);
             String addMsg = FormatUtil.filter(event.getClient().getSuccess()+" Added **"+track.getInfo().title
                     +"** (`"+ TimeUtil.formatTime(track.getDuration())+"`) "+(pos==0?"to begin playing":" to the queue at position "+pos));
             // JDA 5+ port: skip reaction-based confirmation for "attached playlists".
@@ -122,16 +153,21 @@ public class PlayCmd extends MusicCommand
         
         private int loadPlaylist(AudioPlaylist playlist, AudioTrack exclude)
         {
-            int[] count = {0};
-            playlist.getTracks().stream().forEach((track) -> {
+            bot.getPlayTracer().mark(event.getMessage().getIdLong(), Stage.LOAD);
+            List<QueuedTrack> batch = new ArrayList<>(playlist.getTracks().size());
+            for(AudioTrack track : playlist.getTracks())
+            {
                 if(!bot.getConfig().isTooLong(track) && !track.equals(exclude))
-                {
-                    AudioHandler handler = (AudioHandler)event.getGuild().getAudioManager().getSendingHandler();
-                    handler.addTrack(new QueuedTrack(track, RequestMetadata.fromResultHandler(track, event)));
-                    count[0]++;
-                }
-            });
-            return count[0];
+                    batch.add(new QueuedTrack(track, RequestMetadata.fromResultHandler(track, event)));
+            }
+            if(!batch.isEmpty())
+            {
+                AudioHandler handler = (AudioHandler)event.getGuild().getAudioManager().getSendingHandler();
+                traceQueued(handler, handler.addTracks(batch)[0]==-1);
+            }
+            else
+                bot.getPlayTracer().discard(event.getMessage().getIdLong());
+            return batch.size();
         }
         
         @Override
@@ -181,7 +217,10 @@ public class PlayCmd extends MusicCommand
         public void noMatches()
         {
             if(ytsearch)
+            {
+                bot.getPlayTracer().discard(event.getMessage().getIdLong());
                 m.editMessage(FormatUtil.filter(event.getClient().getWarning()+" No results found for `"+event.getArgs()+"`.")).queue();
+            }
             else
                 bot.getPlayerManager().loadItemOrdered(event.getGuild(), "ytsearch:"+event.getArgs(), new ResultHandler(m,event,true));
         }
@@ -189,6 +228,7 @@ public class PlayCmd extends MusicCommand
         @Override
         public void loadFailed(FriendlyException throwable)
         {
+            bot.getPlayTracer().discard(event.getMessage().getIdLong());
             if(LoadErrorUtil.isAgeRestricted(throwable) && !bot.getConfig().useYoutubeOauth2())
             {
                 m.editMessage(FormatUtil.filter(event.getClient().getError()
@@ -233,7 +273,31 @@ public class PlayCmd extends MusicCommand
             event.getChannel().sendMessage(loadingEmoji+" Loading playlist **"+event.getArgs()+"**... ("+playlist.getItems().size()+" items)").queue(m -> 
             {
                 AudioHandler handler = (AudioHandler)event.getGuild().getAudioManager().getSendingHandler();
-                playlist.loadTracks(bot.getPlayerManager(), (at)->handler.addTrack(new QueuedTrack(at, RequestMetadata.fromResultHandler(at, event))), () -> {
+                // shows how far a long playlist has got; the lock keeps a progress edit from
+                // being queued after the final one
+                AtomicBoolean done = new AtomicBoolean();
+                AtomicInteger shown = new AtomicInteger();
+                ScheduledFuture<?> progress = bot.getSchedulers().getMaintenance().scheduleWithFixedDelay("playlist-progress", () -> 
+                {
+                    int processed = playlist.getProcessed();
+                    synchronized(done)
+                    {
+                        if(!done.get() && shown.getAndSet(processed) != processed)
+                            m.editMessage(loadingEmoji+" Loading playlist **"+event.getArgs()+"**... ("+processed+"/"+playlist.getItems().size()+" items)").queue();
+                    }
+                }, PROGRESS_INTERVAL, PROGRESS_INTERVAL, TimeUnit.SECONDS);
+                playlist.loadTracks(bot.getPlayerManager(), (tracks)->
+                {
+                    List<QueuedTrack> batch = new ArrayList<>(tracks.size());
+                    for(AudioTrack at : tracks)
+                        batch.add(new QueuedTrack(at, RequestMetadata.fromResultHandler(at, event)));
+                    handler.addTracks(batch);
+                }, () -> {
+                    synchronized(done)
+                    {
+                        done.set(true);
+                    }
+                    progress.cancel(false);
                     StringBuilder builder = new StringBuilder(playlist.getTracks().isEmpty() 
                             ? event.getClient().getWarning()+" No tracks were loaded!" 
                             : event.getClient().getSuccess()+" Loaded **"+playlist.getTracks().size()+"** tracks!");
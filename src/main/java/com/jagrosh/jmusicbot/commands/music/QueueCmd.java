@@ -55,7 +55,7 @@ public class QueueCmd extends MusicCommand
         }
         catch(NumberFormatException ignore){}
         AudioHandler ah = (AudioHandler)event.getGuild().getAudioManager().getSendingHandler();
-        List<QueuedTrack> list = ah.getQueue().getList();
+        List<QueuedTrack> list = ah.getQueue().getSnapshot();
         if(list.isEmpty())
         {
             event.reply(event.getClient().getWarning() + " There is no music in the queue!");
@@ -74,15 +74,24 @@ public class RemoveCmd extends MusicCommand
         boolean isDJ = event.getMember().hasPermission(Permission.MANAGE_SERVER);
         if(!isDJ)
             isDJ = event.getMember().getRoles().contains(settings.getRole(event.getGuild()));
-        QueuedTrack qt = handler.getQueue().get(pos-1);
+        QueuedTrack qt;
+        synchronized(handler.getQueue().getLock())
+        {
+            if(pos>handler.getQueue().size())
+            {
+                event.replyError("Position must be a valid integer between 1 and "+handler.getQueue().size()+"!");
+                return;
+            }
+            qt = handler.getQueue().get(pos-1);
+            if(qt.getIdentifier()==event.getAuthor().getIdLong() || isDJ)
+                handler.getQueue().remove(pos-1);
+        }
         if(qt.getIdentifier()==event.getAuthor().getIdLong())
         {
-            handler.getQueue().remove(pos-1);
             event.replySuccess("Removed **"+qt.getTrack().getInfo().title+"** from the queue");
         }
         else if(isDJ)
         {
-            handler.getQueue().remove(pos-1);
             User u;
             try {
                 u = event.getJDA().getUserById(qt.getIdentifier());
@@ -119,6 +119,7 @@ public class SearchCmd extends MusicCommand
 
             bot.getWaiter().waitForEvent(
                     MessageReceivedEvent.class,
+                    event.getChannel().getIdLong(),
                     e -> !e.getAuthor().isBot()
                             && e.getAuthor().equals(event.getAuthor())
                             && e.getChannel().equals(event.getChannel()),
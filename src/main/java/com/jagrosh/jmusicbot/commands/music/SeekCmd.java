@@ -83,7 +83,7 @@ public class SeekCmd extends MusicCommand
         
         try
         {
-            playingTrack.setPosition(seekMilliseconds);
+            handler.seek(playingTrack, seekMilliseconds);
         }
         catch (Exception e)
         {
@@ -17,14 +17,22 @@ package com.jagrosh.jmusicbot.commands.owner;
 
 import com.jagrosh.jdautilities.command.CommandEvent;
 import com.jagrosh.jdautilities.commons.JDAUtilitiesInfo;
+import com.jagrosh.jdautilities.commons.utils.LatencyHistogram;
 import com.jagrosh.jmusicbot.Bot;
+import com.jagrosh.jmusicbot.audio.AudioHandler;
+import com.jagrosh.jmusicbot.audio.RecentTrackSourceManager;
+import com.jagrosh.jmusicbot.audio.SearchCache;
 import com.jagrosh.jmusicbot.commands.OwnerCommand;
 import com.jagrosh.jmusicbot.utils.OtherUtil;
+import com.jagrosh.jmusicbot.utils.TaskPool;
 import com.sedmelluq.discord.lavaplayer.tools.PlayerLibrary;
 import net.dv8tion.jda.api.JDAInfo;
 import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.channel.ChannelType;
 import net.dv8tion.jda.api.utils.FileUpload;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  *
@@ -59,6 +67,7 @@ public class DebugCmd extends OwnerCommand
                 .append("\n  Prefix = ").append(bot.getConfig().getPrefix())
                 .append("\n  AltPrefix = ").append(bot.getConfig().getAltPrefix())
                 .append("\n  MaxSeconds = ").append(bot.getConfig().getMaxSeconds())
+                .append("\n  FrameBuffer = ").append(bot.getConfig().getFrameBufferDuration())
                 .append("\n  NPImages = ").append(bot.getConfig().useNPImages())
                 .append("\n  SongInStatus = ").append(bot.getConfig().getSongInStatus())
                 .append("\n  StayInChannel = ").append(bot.getConfig().getStay())
@@ -70,9 +79,57 @@ public class DebugCmd extends OwnerCommand
                 .append("\n  Lavaplayer Version = ").append(PlayerLibrary.VERSION);
         long total = Runtime.getRuntime().totalMemory() / 1024 / 1024;
         long used = total - (Runtime.getRuntime().freeMemory() / 1024 / 1024);
+        long frames = 0, underruns = 0;
+        for(Guild guild : event.getJDA().getGuilds())
+        {
+            if(guild.getAudioManager().getSendingHandler() instanceof AudioHandler)
+            {
+                AudioHandler handler = (AudioHandler) guild.getAudioManager().getSendingHandler();
+                frames += handler.getFramesSent();
+                underruns += handler.getUnderruns();
+            }
+        }
+        RecentTrackSourceManager recent = bot.getPlayerManager().getRecentTracks();
         sb.append("\n\nRuntime Information:")
                 .append("\n  Total Memory = ").append(total)
-                .append("\n  Used Memory = ").append(used);
+                .append("\n  Used Memory = ").append(used)
+                .append("\n  Audio Frames Sent = ").append(frames)
+                .append("\n  Audio Underruns = ").append(underruns)
+                .append("\n  Pending Settings Writes = ").append(bot.getSettingsManager().getPendingWrites())
+                .append("\n  Merged Loads = ").append(bot.getPlayerManager().getMergedLoads())
+                .append("\n  Recent Tracks = ").append(recent.getRecentTracks().size()).append(" keys, ")
+                .append(recent.getRecentTracks().bytes() / 1024).append(" KB, ")
+                .append(recent.getHits()).append(" hits");
+        SearchCache<?> searches = bot.getPlayerManager().getSearchCache();
+        if(searches != null)
+        {
+            long hits = searches.getHits(), lookups = hits + searches.getMisses();
+            sb.append("\n  Search Cache = ").append(searches.size()).append(" searches, ")
+                    .append(hits).append("/").append(lookups).append(" hits")
+                    .append(lookups == 0 ? "" : String.format(" (%.1f%%)", 100.0 * hits / lookups));
+        }
+        sb.append("\n\nScheduler Information:");
+        for(TaskPool pool : bot.getSchedulers().getPools())
+        {
+            sb.append("\n  ").append(pool.getName()).append(" = ").append(pool.getCorePoolSize()).append(" threads, ")
+                    .append(pool.getActiveCount()).append(" active, ").append(pool.getQueueDepth()).append(" queued");
+            for(TaskPool.TaskStats task : pool.getStats())
+                sb.append(String.format("\n    %s = %d runs, %.1f ms avg, %d ms max, %d ms max late, %d overruns, %d failures", 
+                        task.getName(), task.getRuns(), 
+                        task.getRuns() == 0 ? 0.0 : task.getTotalNanos() / 1e6 / task.getRuns(),
+                        task.getMaxNanos() / 1_000_000, task.getMaxLateNanos() / 1_000_000, 
+                        task.getOverruns(), task.getFailures()));
+        }
+        LatencyHistogram queued = event.getClient().getCommandQueueLatency();
+        sb.append("\n\nCommand Information:")
+                .append("\n  Async = ").append(bot.getConfig().useAsyncCommands())
+                .append(String.format("\n  Queue Wait = %d ms p50, %d ms p99", queued.getPercentile(50), queued.getPercentile(99)));
+        for(Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(event.getClient().getCommandLatencies()).entrySet())
+        {
+            LatencyHistogram latency = entry.getValue();
+            sb.append(String.format("\n  %s = %d runs, %d ms p50, %d ms p99, %d ms max", entry.getKey(), latency.getCount(),
+                    latency.getPercentile(50), latency.getPercentile(99), latency.getMaxNanos() / 1_000_000));
+        }
         sb.append("\n\nDiscord Information:")
                 .append("\n  ID = ").append(event.getJDA().getSelfUser().getId())
                 .append("\n  Guilds = ").append(event.getJDA().getGuildCache().size())
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.commands.owner;
+
+import com.jagrosh.jdautilities.command.CommandEvent;
+import com.jagrosh.jdautilities.commons.utils.LatencyHistogram;
+import com.jagrosh.jmusicbot.Bot;
+import com.jagrosh.jmusicbot.commands.OwnerCommand;
+import com.jagrosh.jmusicbot.metrics.PlayTracer;
+import com.jagrosh.jmusicbot.metrics.PlayTracer.Stage;
+import com.jagrosh.jmusicbot.metrics.PlayTracer.Trace;
+import java.util.List;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.channel.ChannelType;
+import net.dv8tion.jda.api.utils.FileUpload;
+
+/**
+ * Shows where the time goes between a play command and its first audio.
+ */
+public class PlaytraceCmd extends OwnerCommand
+{
+    private final static int MAX_TEXT = 2000 - "```\n\n```".length(); // the most text a code block in one message can hold
+
+    private final Bot bot;
+
+    public PlaytraceCmd(Bot bot)
+    {
+        this.bot = bot;
+        this.name = "playtrace";
+        this.arguments = "[message id]";
+        this.help = "shows how long play commands take to be heard";
+        this.aliases = bot.getConfig().getAliases(this.name);
+        this.guildOnly = false;
+    }
+
+    @Override
+    protected void execute(CommandEvent event)
+    {
+        PlayTracer tracer = bot.getPlayTracer();
+        List<Trace> recent = tracer.getRecent();
+        if(!event.getArgs().isEmpty())
+        {
+            for(Trace trace : recent)
+            {
+                if(Long.toString(trace.getId()).equals(event.getArgs()))
+                {
+                    event.reply("```\n" + format(trace) + "\n```");
+                    return;
+                }
+            }
+            event.replyError("None of the last " + recent.size() + " traced play commands had the id `" + event.getArgs() + "`.");
+            return;
+        }
+
+        StringBuilder sb = new StringBuilder("Stage          Count     p50     p90     p99     Max");
+        for(Stage stage : Stage.values())
+            append(sb, stage.getName(), tracer.getStage(stage));
+        append(sb, "total", tracer.getTotal());
+        sb.append("\n\nIn progress = ").append(tracer.getInFlight())
+                .append(", Not heard right away = ").append(tracer.getAbandoned());
+        if(!recent.isEmpty())
+        {
+            sb.append("\n\nRecent:");
+            for(Trace trace : recent)
+                sb.append('\n').append(format(trace));
+        }
+        String text = sb.toString();
+        if(text.length() <= MAX_TEXT)
+            event.reply("```\n" + text + "\n```");
+        else if(event.isFromType(ChannelType.PRIVATE) 
+                || event.getSelfMember().hasPermission(event.getTextChannel(), Permission.MESSAGE_ATTACH_FILES))
+            event.getChannel().sendFiles(FileUpload.fromData(text.getBytes(), "playtrace.txt")).queue();
+        else
+        {
+            // drop the recent traces that don't fit, whole lines at a time
+            String more = "\n(...)";
+            event.reply("```\n" + text.substring(0, text.lastIndexOf('\n', MAX_TEXT - more.length())) + more + "\n```");
+        }
+    }
+
+    private static void append(StringBuilder sb, String name, LatencyHistogram histogram)
+    {
+        sb.append(String.format("\n%-12s %7d %5dms %5dms %5dms %5dms", name, histogram.getCount(), histogram.getPercentile(50),
+                histogram.getPercentile(90), histogram.getPercentile(99), histogram.getMaxNanos() / 1_000_000));
+    }
+
+    private static String format(Trace trace)
+    {
+        StringBuilder sb = new StringBuilder().append(trace.getId()).append(':');
+        for(Stage stage : Stage.values())
+            sb.append(' ').append(stage.getName()).append('=').append(trace.getNanos(stage) / 1_000_000).append("ms");
+        return sb.append(" total=").append(trace.getTotalNanos() / 1_000_000).append("ms").toString();
+    }
+}
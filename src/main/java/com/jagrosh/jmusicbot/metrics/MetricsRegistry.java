@@ -0,0 +1,213 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.metrics;
+
+import com.jagrosh.jdautilities.commons.utils.LatencyHistogram;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Holds the bot's counters, gauges and histograms, and writes them in the Prometheus text format.
+ * 
+ * <p>Metrics are either kept here ({@link #counter(String, String)}, {@link #histogram(String, String)}
+ * and their labelled forms), or read from where they are already kept each time they are written
+ * ({@link #gauge(String, String, DoubleSupplier)} and the other methods taking a supplier), so that
+ * components which already count something don't have to count it twice.
+ */
+public class MetricsRegistry
+{
+    private final Map<String, Family> families = new LinkedHashMap<>(); // guarded by this
+    
+    public LongAdder counter(String name, String help)
+    {
+        return counter(name, help, (String) null).labels(null);
+    }
+    
+    public Labelled<LongAdder> counter(String name, String help, String label)
+    {
+        Labelled<LongAdder> labelled = new Labelled<>(v -> new LongAdder());
+        register(new Family(name, help, "counter", label, () -> labelled.children, v -> ((LongAdder) v).sum()));
+        return labelled;
+    }
+    
+    /**
+     * Registers a counter that is kept elsewhere.
+     */
+    public void counter(String name, String help, DoubleSupplier value)
+    {
+        register(new Family(name, help, "counter", null, () -> Collections.singletonMap(null, value), v -> ((DoubleSupplier) v).getAsDouble()));
+    }
+    
+    public void gauge(String name, String help, DoubleSupplier value)
+    {
+        register(new Family(name, help, "gauge", null, () -> Collections.singletonMap(null, value), v -> ((DoubleSupplier) v).getAsDouble()));
+    }
+    
+    public LatencyHistogram histogram(String name, String help)
+    {
+        return histogram(name, help, (String) null).labels(null);
+    }
+    
+    public Labelled<LatencyHistogram> histogram(String name, String help, String label)
+    {
+        Labelled<LatencyHistogram> labelled = new Labelled<>(v -> new LatencyHistogram());
+        register(new Family(name, help, "histogram", label, () -> labelled.children, null));
+        return labelled;
+    }
+    
+    /**
+     * Registers a histogram that is kept elsewhere.
+     */
+    public void histogram(String name, String help, LatencyHistogram histogram)
+    {
+        register(new Family(name, help, "histogram", null, () -> Collections.singletonMap(null, histogram), null));
+    }
+    
+    /**
+     * Registers histograms that are kept elsewhere, one for each value of the label.
+     */
+    public void histogram(String name, String help, String label, Supplier<? extends Map<String, LatencyHistogram>> values)
+    {
+        register(new Family(name, help, "histogram", label, values, null));
+    }
+    
+    /**
+     * Writes every metric in the Prometheus text exposition format.
+     * 
+     * @return the metrics
+     */
+    public String scrape()
+    {
+        List<Family> snapshot;
+        synchronized(this)
+        {
+            snapshot = new ArrayList<>(families.values());
+        }
+        StringBuilder sb = new StringBuilder();
+        for(Family family : snapshot)
+            family.write(sb);
+        return sb.toString();
+    }
+    
+    private synchronized void register(Family family)
+    {
+        if(families.putIfAbsent(family.name, family) != null)
+            throw new IllegalArgumentException("A metric named " + family.name + " is already registered");
+    }
+    
+    /**
+     * A metric with one child for each value of its label.
+     * 
+     * @param <T> the type of each child
+     */
+    public static class Labelled<T>
+    {
+        private final Map<String, T> children = new ConcurrentHashMap<>();
+        private final Function<String, T> create;
+        
+        private Labelled(Function<String, T> create)
+        {
+            this.create = create;
+        }
+        
+        public T labels(String value)
+        {
+            String key = value == null ? "" : value;
+            T child = children.get(key);
+            return child != null ? child : children.computeIfAbsent(key, create);
+        }
+    }
+    
+    private static class Family
+    {
+        private final String name, help, type, label;
+        private final Supplier<? extends Map<String, ?>> children;
+        private final ToDoubleFunction<Object> value; // null for histograms
+        
+        private Family(String name, String help, String type, String label, Supplier<? extends Map<String, ?>> children, ToDoubleFunction<Object> value)
+        {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.label = label;
+            this.children = children;
+            this.value = value;
+        }
+        
+        private void write(StringBuilder sb)
+        {
+            Map<String, ?> current = children.get();
+            if(current == null)
+                return;
+            sb.append("# HELP ").append(name).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+            sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            // sorted, so that each scrape lists the same series in the same order
+            Map<String, Object> sorted = new TreeMap<>();
+            current.forEach((k, v) -> sorted.put(k == null ? "" : k, v));
+            for(Map.Entry<String, Object> child : sorted.entrySet())
+            {
+                String labels = label == null ? "" : label + "=\"" + escape(child.getKey()) + "\"";
+                if(value != null)
+                    sample(sb, name, labels, value.applyAsDouble(child.getValue()));
+                else
+                    writeHistogram(sb, labels, (LatencyHistogram) child.getValue());
+            }
+        }
+        
+        private void writeHistogram(StringBuilder sb, String labels, LatencyHistogram histogram)
+        {
+            String prefix = labels.isEmpty() ? "" : labels + ",";
+            long cumulative = 0;
+            for(int i = 0; i < LatencyHistogram.BUCKETS; i++)
+            {
+                cumulative += histogram.getCount(i);
+                sample(sb, name + "_bucket", prefix + "le=\"" + LatencyHistogram.getBound(i) / 1000.0 + "\"", cumulative);
+            }
+            cumulative += histogram.getCount(LatencyHistogram.BUCKETS);
+            sample(sb, name + "_bucket", prefix + "le=\"+Inf\"", cumulative);
+            sample(sb, name + "_sum", labels, histogram.getSumNanos() / 1e9);
+            sample(sb, name + "_count", labels, cumulative);
+        }
+        
+        private static void sample(StringBuilder sb, String name, String labels, double value)
+        {
+            sb.append(name);
+            if(!labels.isEmpty())
+                sb.append('{').append(labels).append('}');
+            sb.append(' ');
+            if(value == Math.rint(value) && Math.abs(value) < 1e15)
+                sb.append((long) value);
+            else
+                sb.append(value);
+            sb.append('\n');
+        }
+        
+        private static String escape(String value)
+        {
+            return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        }
+    }
+}
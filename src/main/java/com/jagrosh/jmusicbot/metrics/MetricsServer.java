@@ -0,0 +1,87 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves the metrics of a {@link MetricsRegistry} at {@code /metrics}, for Prometheus to scrape.
+ * Requests are answered one at a time on the server's own thread.
+ */
+public class MetricsServer
+{
+    private final HttpServer server;
+    
+    private MetricsServer(HttpServer server)
+    {
+        this.server = server;
+    }
+    
+    /**
+     * Starts serving metrics.
+     * 
+     * @param registry the metrics to serve
+     * @param host the address to listen on
+     * @param port the port to listen on
+     * @return the running server
+     * @throws IOException if the address can't be bound
+     */
+    public static MetricsServer start(MetricsRegistry registry, String host, int port) throws IOException
+    {
+        HttpServer server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext("/metrics", exchange -> respond(exchange, registry));
+        server.start();
+        return new MetricsServer(server);
+    }
+    
+    public int getPort()
+    {
+        return server.getAddress().getPort();
+    }
+    
+    public void stop()
+    {
+        server.stop(0);
+    }
+    
+    private static void respond(HttpExchange exchange, MetricsRegistry registry) throws IOException
+    {
+        try
+        {
+            if(!"GET".equals(exchange.getRequestMethod()))
+            {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try(OutputStream out = exchange.getResponseBody())
+            {
+                out.write(body);
+            }
+        }
+        finally
+        {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.metrics;
+
+import com.jagrosh.jdautilities.commons.utils.LatencyHistogram;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Traces how long it takes from a play command being received to the first frame of its track
+ * being sent, split into the {@link Stage stages} in between. Each trace is keyed by the id of
+ * the command message, and each stage is recorded as the time since the stage before it.
+ *
+ * <p>Only requests whose track starts playing right away are traced to the end; the rest are
+ * dropped once it is known they were queued, failed, or were left waiting too long.
+ */
+public class PlayTracer
+{
+    private final static int MAX_TRACES = 1000; // in flight at once; beyond this, new requests aren't traced
+    private final static int RECENT = 20;
+    private final static long EXPIRY = TimeUnit.MINUTES.toNanos(2);
+
+    private final Map<Long, Trace> traces = new ConcurrentHashMap<>();
+    private final Map<Stage, LatencyHistogram> stages = new EnumMap<>(Stage.class);
+    private final Map<String, LatencyHistogram> stagesByName = new LinkedHashMap<>();
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final LongAdder abandoned = new LongAdder();
+    private final Trace[] recent = new Trace[RECENT]; // guarded by itself
+    private final LongSupplier clock;
+    private int nextRecent = 0;
+
+    public PlayTracer()
+    {
+        this(System::nanoTime);
+    }
+
+    PlayTracer(LongSupplier clock)
+    {
+        this.clock = clock;
+        for(Stage stage : Stage.values())
+        {
+            LatencyHistogram histogram = new LatencyHistogram();
+            stages.put(stage, histogram);
+            stagesByName.put(stage.getName(), histogram);
+        }
+    }
+
+    /**
+     * Registers the stage and total histograms with a registry.
+     *
+     * @param metrics the registry
+     */
+    public void register(MetricsRegistry metrics)
+    {
+        Map<String, LatencyHistogram> byName = Collections.unmodifiableMap(stagesByName);
+        metrics.histogram("jmusicbot_play_stage_seconds", "Time spent in each stage between a play command and its first audio",
+                "stage", () -> byName);
+        metrics.histogram("jmusicbot_play_first_audio_seconds", "Time from a play command to its first audio", total);
+        metrics.counter("jmusicbot_play_traces_abandoned_total", "Play commands that were never heard, or were queued behind other tracks",
+                abandoned::sum);
+    }
+
+    /**
+     * Starts tracing a request.
+     *
+     * @param id the id of the command message
+     */
+    public void begin(long id)
+    {
+        if(traces.size() >= MAX_TRACES)
+            return;
+        traces.putIfAbsent(id, new Trace(id, clock.getAsLong()));
+    }
+
+    /**
+     * Records that a request has finished a stage.
+     *
+     * @param id the id of the command message
+     * @param stage the stage that finished
+     */
+    public void mark(long id, Stage stage)
+    {
+        Trace trace = traces.get(id);
+        if(trace != null)
+            stages.get(stage).record(trace.mark(stage, clock.getAsLong()));
+    }
+
+    /**
+     * Records the last stage of a request, and the time it took overall.
+     *
+     * @param id the id of the command message
+     */
+    public void finish(long id)
+    {
+        Trace trace = traces.remove(id);
+        if(trace == null)
+            return;
+        long now = clock.getAsLong();
+        stages.get(Stage.FIRST_FRAME).record(trace.mark(Stage.FIRST_FRAME, now));
+        total.record(now - trace.started);
+        synchronized(recent)
+        {
+            recent[nextRecent] = trace;
+            nextRecent = (nextRecent + 1) % RECENT;
+        }
+    }
+
+    /**
+     * Stops tracing a request that won't be heard right away. The stages it already finished
+     * stay recorded.
+     *
+     * @param id the id of the command message
+     */
+    public void discard(long id)
+    {
+        if(traces.remove(id) != null)
+            abandoned.increment();
+    }
+
+    /**
+     * Drops requests that have been waiting for longer than anything should take, such as those
+     * that stopped at a check in the command.
+     */
+    public void sweep()
+    {
+        long now = clock.getAsLong();
+        traces.values().removeIf(trace ->
+        {
+            if(now - trace.started < EXPIRY)
+                return false;
+            abandoned.increment();
+            return true;
+        });
+    }
+
+    public LatencyHistogram getStage(Stage stage)
+    {
+        return stages.get(stage);
+    }
+
+    public LatencyHistogram getTotal()
+    {
+        return total;
+    }
+
+    public long getAbandoned()
+    {
+        return abandoned.sum();
+    }
+
+    public int getInFlight()
+    {
+        return traces.size();
+    }
+
+    /**
+     * Gets the most recent requests that were traced to the end.
+     *
+     * @return the traces, newest first
+     */
+    public List<Trace> getRecent()
+    {
+        List<Trace> list = new ArrayList<>(RECENT);
+        synchronized(recent)
+        {
+            for(int i = 1; i <= RECENT; i++)
+            {
+                Trace trace = recent[(nextRecent - i + RECENT) % RECENT];
+                if(trace != null)
+                    list.add(trace);
+            }
+        }
+        return list;
+    }
+
+    public enum Stage
+    {
+        CONNECT("connect"),         // checks and asking to join the voice channel
+        REPLY("reply"),             // sending the "Loading..." message, before loading starts
+        LOAD("load"),               // resolving the track
+        QUEUE("queue"),             // handing the track to the player
+        FIRST_FRAME("first_frame"); // the first frame being ready, including the voice connection
+
+        private final String name;
+
+        private Stage(String name)
+        {
+            this.name = name;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+    }
+
+    public static class Trace
+    {
+        private final long id, started;
+        private final long[] durations = new long[Stage.values().length];
+        private long last;
+
+        private Trace(long id, long started)
+        {
+            this.id = id;
+            this.started = started;
+            this.last = started;
+        }
+
+        private synchronized long mark(Stage stage, long now)
+        {
+            long elapsed = Math.max(0, now - last);
+            last = now;
+            durations[stage.ordinal()] += elapsed;
+            return elapsed;
+        }
+
+        public long getId()
+        {
+            return id;
+        }
+
+        public synchronized long getNanos(Stage stage)
+        {
+            return durations[stage.ordinal()];
+        }
+
+        public synchronized long getTotalNanos()
+        {
+            return last - started;
+        }
+    }
+}
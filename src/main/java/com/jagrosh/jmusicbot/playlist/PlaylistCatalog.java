@@ -0,0 +1,279 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.playlist;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the list of playlists and the parsed contents of each playlist file in memory, so that
+ * looking up a playlist doesn't touch the disk. A {@link WatchService} on the folder drops
+ * whatever changed; until the folder can be watched, nothing is kept and every call reads it.
+ */
+class PlaylistCatalog
+{
+    private final Path folder;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile Listing listing; // null until scanned, and again when a playlist is added or removed
+    private volatile boolean watching = false;
+    private WatchService watcher;
+    private Thread thread;
+    private boolean closed = false;
+
+    PlaylistCatalog(Path folder)
+    {
+        this.folder = folder;
+    }
+
+    /**
+     * Gets the names of every playlist in the folder.
+     *
+     * @return the names, or {@code null} if the folder doesn't exist
+     */
+    List<String> names()
+    {
+        Listing current = listing;
+        return current != null ? current.names : load().names;
+    }
+
+    /**
+     * Gets the parsed contents of a playlist.
+     *
+     * @param name the playlist name
+     * @return the playlist, or {@code null} if there is no such playlist or it can't be read
+     */
+    Entry get(String name)
+    {
+        Listing current = listing;
+        if(current == null)
+            current = load();
+        if(!current.contains(name))
+            return null;
+        Entry entry = entries.get(name);
+        if(entry != null)
+            return entry;
+        synchronized(this)
+        {
+            entry = entries.get(name);
+            if(entry != null)
+                return entry;
+            entry = parse(folder.resolve(name + ".txt"));
+            if(entry != null && watching)
+                entries.put(name, entry);
+            return entry;
+        }
+    }
+
+    /**
+     * Drops what is known about one playlist, for changes the bot makes itself, which shouldn't
+     * have to wait for the watch service to notice them.
+     *
+     * @param name the playlist name
+     * @param listed whether the playlist was added or removed, rather than only changed
+     */
+    synchronized void invalidate(String name, boolean listed)
+    {
+        entries.remove(name);
+        if(listed)
+            listing = null;
+    }
+
+    synchronized void close()
+    {
+        closed = true;
+        watching = false;
+        if(watcher != null)
+        {
+            try
+            {
+                watcher.close();
+            }
+            catch(IOException ignored) {}
+        }
+    }
+
+    private synchronized Listing load()
+    {
+        if(listing != null)
+            return listing;
+        // register before scanning, so nothing that changes during the scan goes unnoticed
+        watch();
+        Listing scanned = scan();
+        if(watching)
+            listing = scanned;
+        return scanned;
+    }
+
+    private Listing scan()
+    {
+        List<String> names = new ArrayList<>();
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(folder, "*.txt"))
+        {
+            for(Path file : stream)
+            {
+                String name = file.getFileName().toString();
+                names.add(name.substring(0, name.length() - 4));
+            }
+        }
+        catch(IOException ex)
+        {
+            return Listing.MISSING;
+        }
+        return new Listing(names);
+    }
+
+    private void watch()
+    {
+        if(watching || closed || !Files.isDirectory(folder))
+            return;
+        try
+        {
+            if(watcher == null)
+                watcher = folder.getFileSystem().newWatchService();
+            folder.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+            watching = true;
+            if(thread == null)
+            {
+                thread = new Thread(this::run, "playlist-watcher");
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+        catch(IOException | UnsupportedOperationException ex)
+        {
+            // not watchable; every call reads the folder as before
+        }
+    }
+
+    private void run()
+    {
+        while(true)
+        {
+            WatchKey key;
+            try
+            {
+                key = watcher.take();
+            }
+            catch(InterruptedException | ClosedWatchServiceException ex)
+            {
+                return;
+            }
+            for(WatchEvent<?> event : key.pollEvents())
+            {
+                if(event.kind() == StandardWatchEventKinds.OVERFLOW)
+                {
+                    invalidateAll();
+                    continue;
+                }
+                String file = event.context().toString();
+                if(file.endsWith(".txt"))
+                    invalidate(file.substring(0, file.length() - 4), event.kind() != StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+            if(!key.reset())
+            {
+                // the folder itself is gone; register again once it's back
+                synchronized(this)
+                {
+                    watching = false;
+                    invalidateAll();
+                }
+            }
+        }
+    }
+
+    private synchronized void invalidateAll()
+    {
+        entries.clear();
+        listing = null;
+    }
+
+    static Entry parse(Path file)
+    {
+        try
+        {
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            boolean shuffle = false;
+            List<String> items = new ArrayList<>();
+            for(String str : Files.readAllLines(file))
+            {
+                String s = str.trim();
+                if(s.isEmpty())
+                    continue;
+                if(s.startsWith("#") || s.startsWith("//"))
+                {
+                    s = s.replaceAll("\\s+", "");
+                    if(s.equalsIgnoreCase("#shuffle") || s.equalsIgnoreCase("//shuffle"))
+                        shuffle = true;
+                }
+                else
+                    items.add(s);
+            }
+            return new Entry(Collections.unmodifiableList(items), shuffle, modified);
+        }
+        catch(IOException ex)
+        {
+            return null;
+        }
+    }
+
+    static class Entry
+    {
+        final List<String> items;
+        final boolean shuffle;
+        final long modified;
+
+        private Entry(List<String> items, boolean shuffle, long modified)
+        {
+            this.items = items;
+            this.shuffle = shuffle;
+            this.modified = modified;
+        }
+    }
+
+    private static class Listing
+    {
+        private final static Listing MISSING = new Listing(null);
+
+        private final List<String> names;
+        private final Set<String> set;
+
+        private Listing(List<String> names)
+        {
+            this.names = names == null ? null : Collections.unmodifiableList(names);
+            this.set = names == null ? Collections.emptySet() : new HashSet<>(names);
+        }
+
+        private boolean contains(String name)
+        {
+            return set.contains(name);
+        }
+    }
+}
@@ -17,6 +17,7 @@ package com.jagrosh.jmusicbot.playlist;
 
 import com.jagrosh.jmusicbot.BotConfig;
 import com.jagrosh.jmusicbot.utils.OtherUtil;
+import com.jagrosh.jmusicbot.utils.TaskPool;
 import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
 import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
@@ -25,9 +26,9 @@ import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
 /**
  *
@@ -36,25 +37,25 @@ import java.util.stream.Collectors;
 public class PlaylistLoader
 {
     private final BotConfig config;
+    private final PlaylistCatalog catalog;
+    private final TaskPool pool;
     
-    public PlaylistLoader(BotConfig config)
+    public PlaylistLoader(BotConfig config, TaskPool pool)
     {
         this.config = config;
+        this.pool = pool;
+        this.catalog = new PlaylistCatalog(OtherUtil.getPath(config.getPlaylistsFolder()));
     }
     
     public List<String> getPlaylistNames()
     {
-        if(folderExists())
-        {
-            File folder = new File(OtherUtil.getPath(config.getPlaylistsFolder()).toString());
-            return Arrays.asList(folder.listFiles((pathname) -> pathname.getName().endsWith(".txt")))
-                    .stream().map(f -> f.getName().substring(0,f.getName().length()-4)).collect(Collectors.toList());
-        }
-        else
+        List<String> names = catalog.names();
+        if(names == null)
         {
             createFolder();
             return Collections.emptyList();
         }
+        return names;
     }
     
     public void createFolder()
@@ -74,58 +75,61 @@ public class PlaylistLoader
     public void createPlaylist(String name) throws IOException
     {
         Files.createFile(OtherUtil.getPath(config.getPlaylistsFolder()+File.separator+name+".txt"));
+        catalog.invalidate(name, true);
     }
     
     public void deletePlaylist(String name) throws IOException
     {
-        Files.delete(OtherUtil.getPath(config.getPlaylistsFolder()+File.separator+name+".txt"));
+        try
+        {
+            Files.delete(OtherUtil.getPath(config.getPlaylistsFolder()+File.separator+name+".txt"));
+            Files.deleteIfExists(getCachePath(name));
+        }
+        finally
+        {
+            catalog.invalidate(name, true);
+        }
     }
     
     public void writePlaylist(String name, String text) throws IOException
     {
-        Files.write(OtherUtil.getPath(config.getPlaylistsFolder()+File.separator+name+".txt"), text.trim().getBytes());
+        try
+        {
+            Files.write(OtherUtil.getPath(config.getPlaylistsFolder()+File.separator+name+".txt"), text.trim().getBytes());
+        }
+        finally
+        {
+            catalog.invalidate(name, false);
+        }
     }
     
     public Playlist getPlaylist(String name)
     {
-        if(!getPlaylistNames().contains(name))
-            return null;
-        try
+        PlaylistCatalog.Entry entry = catalog.get(name);
+        if(entry == null)
         {
-            if(folderExists())
-            {
-                boolean[] shuffle = {false};
-                List<String> list = new ArrayList<>();
-                Files.readAllLines(OtherUtil.getPath(config.getPlaylistsFolder()+File.separator+name+".txt")).forEach(str -> 
-                {
-                    String s = str.trim();
-                    if(s.isEmpty())
-                        return;
-                    if(s.startsWith("#") || s.startsWith("//"))
-                    {
-                        s = s.replaceAll("\\s+", "");
-                        if(s.equalsIgnoreCase("#shuffle") || s.equalsIgnoreCase("//shuffle"))
-                            shuffle[0]=true;
-                    }
-                    else
-                        list.add(s);
-                });
-                if(shuffle[0])
-                    shuffle(list);
-                return new Playlist(name, list, shuffle[0]);
-            }
-            else
-            {
+            if(!folderExists())
                 createFolder();
-                return null;
-            }
+            return null;
         }
-        catch(IOException e)
+        List<String> items = entry.items;
+        if(entry.shuffle)
         {
-            return null;
+            items = new ArrayList<>(items);
+            shuffle(items);
         }
+        return new Playlist(name, items, entry.shuffle, entry.modified);
     }
     
+    public void shutdown()
+    {
+        catalog.close();
+    }
+    
+    private Path getCachePath(String name)
+    {
+        return OtherUtil.getPath(config.getPlaylistsFolder()+File.separator+".cache"+File.separator+name+".tracks");
+    }
     
     private static <T> void shuffle(List<T> list)
     {
@@ -144,98 +148,49 @@ public class PlaylistLoader
         private final String name;
         private final List<String> items;
         private final boolean shuffle;
-        private final List<AudioTrack> tracks = new LinkedList<>();
-        private final List<PlaylistLoadError> errors = new LinkedList<>();
+        private final long modified;
+        // filled in by the loader and only published once it's done, just before the callback
+        private volatile List<AudioTrack> tracks = Collections.emptyList();
+        private volatile List<PlaylistLoadError> errors = Collections.emptyList();
         private boolean loaded = false;
+        private volatile int processed = 0;
         
-        private Playlist(String name, List<String> items, boolean shuffle)
+        private Playlist(String name, List<String> items, boolean shuffle, long modified)
         {
             this.name = name;
             this.items = items;
             this.shuffle = shuffle;
+            this.modified = modified;
         }
         
-        public void loadTracks(AudioPlayerManager manager, Consumer<AudioTrack> consumer, Runnable callback)
+        /**
+         * Loads every item of the playlist, a few at a time, handing the tracks to the consumer
+         * in playlist order as soon as every item before them has finished loading. An item
+         * that is itself a playlist is handed over as one batch.
+         *
+         * <p>Loading starts on the pool rather than the calling thread, which can be the player's
+         * own when a default playlist is started, because it first reads the playlist's cache.
+         *
+         * @param manager the manager to load with
+         * @param consumer receives each batch of loaded tracks, in playlist order
+         * @param callback run once every item has finished loading
+         */
+        public void loadTracks(AudioPlayerManager manager, Consumer<List<AudioTrack>> consumer, Runnable callback)
         {
             if(loaded)
                 return;
             loaded = true;
-            for(int i=0; i<items.size(); i++)
-            {
-                boolean last = i+1 == items.size();
-                int index = i;
-                manager.loadItemOrdered(name, items.get(i), new AudioLoadResultHandler() 
-                {
-                    private void done()
-                    {
-                        if(last)
-                        {
-                            if(shuffle)
-                                shuffleTracks();
-                            if(callback != null)
-                                callback.run();
-                        }
-                    }
-
-                    @Override
-                    public void trackLoaded(AudioTrack at) 
-                    {
-                        if(config.isTooLong(at))
-                            errors.add(new PlaylistLoadError(index, items.get(index), "This track is longer than the allowed maximum"));
-                        else
-                        {
-                            at.setUserData(0L);
-                            tracks.add(at);
-                            consumer.accept(at);
-                        }
-                        done();
-                    }
-
-                    @Override
-                    public void playlistLoaded(AudioPlaylist ap) 
-                    {
-                        if(ap.isSearchResult())
-                        {
-                            trackLoaded(ap.getTracks().get(0));
-                        }
-                        else if(ap.getSelectedTrack()!=null)
-                        {
-                            trackLoaded(ap.getSelectedTrack());
-                        }
-                        else
-                        {
-                            List<AudioTrack> loaded = new ArrayList<>(ap.getTracks());
-                            if(shuffle)
-                                for(int first =0; first<loaded.size(); first++)
-                                {
-                                    int second = (int)(Math.random()*loaded.size());
-                                    AudioTrack tmp = loaded.get(first);
-                                    loaded.set(first, loaded.get(second));
-                                    loaded.set(second, tmp);
-                                }
-                            loaded.removeIf(track -> config.isTooLong(track));
-                            loaded.forEach(at -> at.setUserData(0L));
-                            tracks.addAll(loaded);
-                            loaded.forEach(at -> consumer.accept(at));
-                        }
-                        done();
-                    }
-
-                    @Override
-                    public void noMatches() 
-                    {
-                        errors.add(new PlaylistLoadError(index, items.get(index), "No matches found."));
-                        done();
-                    }
-
-                    @Override
-                    public void loadFailed(FriendlyException fe) 
-                    {
-                        errors.add(new PlaylistLoadError(index, items.get(index), "Failed to load track: "+fe.getLocalizedMessage()));
-                        done();
-                    }
-                });
-            }
+            pool.submit("playlist-load", () -> new Loader(manager, consumer, callback).start());
+        }
+        
+        /**
+         * Gets how many items have finished loading and been handed over, in playlist order.
+         * 
+         * @return the number of processed items
+         */
+        public int getProcessed()
+        {
+            return processed;
         }
         
         public void shuffleTracks()
@@ -253,15 +208,252 @@ public class PlaylistLoader
             return items;
         }
 
+        /**
+         * Gets the loaded tracks. This is empty until the callback given to
+         * {@link #loadTracks(AudioPlayerManager, Consumer, Runnable)} runs.
+         *
+         * @return the loaded tracks
+         */
         public List<AudioTrack> getTracks()
         {
             return tracks;
         }
         
+        /**
+         * Gets the items that failed to load. This is empty until the callback given to
+         * {@link #loadTracks(AudioPlayerManager, Consumer, Runnable)} runs.
+         *
+         * @return the errors, in playlist order
+         */
         public List<PlaylistLoadError> getErrors()
         {
             return errors;
         }
+        
+        private class Loader
+        {
+            private final AudioPlayerManager manager;
+            private final Consumer<List<AudioTrack>> consumer;
+            private final Runnable callback;
+            private final int concurrency;
+            private final TrackCache cache;
+            // each slot holds the loaded tracks or a PlaylistLoadError until it's ready to hand over
+            private final Object[] results = new Object[items.size()];
+            // finished items, in playlist order, waiting to be handed over
+            private final Queue<Object> ready = new ArrayDeque<>();
+            private final List<AudioTrack> loadedTracks = new ArrayList<>();
+            private final List<PlaylistLoadError> loadErrors = new ArrayList<>();
+            private int next = 0, head = 0, inFlight = 0;
+            private boolean handing = false, finished = false;
+            
+            private Loader(AudioPlayerManager manager, Consumer<List<AudioTrack>> consumer, Runnable callback)
+            {
+                this.manager = manager;
+                this.consumer = consumer;
+                this.callback = callback;
+                this.concurrency = Math.max(1, config.getPlaylistConcurrency());
+                this.cache = config.getPlaylistCacheTime() > 0 
+                        ? TrackCache.load(getCachePath(name), modified, config.getPlaylistCacheTime(), manager) 
+                        : null;
+            }
+            
+            private void start()
+            {
+                proceed(-1, null);
+            }
+            
+            private void complete(int index, Object result)
+            {
+                proceed(index, result);
+            }
+            
+            /**
+             * Records a finished item, then starts whichever items that makes room for and hands over
+             * whatever is ready. Only the bookkeeping happens under the lock; reading the cache, starting
+             * loads, handing tracks to the consumer and finishing up all happen after it's released.
+             */
+            private void proceed(int index, Object result)
+            {
+                Queue<Integer> claimed = new ArrayDeque<>();
+                synchronized(this)
+                {
+                    if(index >= 0)
+                    {
+                        results[index] = result;
+                        inFlight--;
+                    }
+                    collect(claimed);
+                }
+                Integer item;
+                while((item = claimed.poll()) != null)
+                {
+                    List<AudioTrack> hit = cache == null ? null : cache.get(items.get(item));
+                    if(hit == null)
+                    {
+                        manager.loadItem(items.get(item), new ItemHandler(item));
+                        continue;
+                    }
+                    // cached items don't call back, so record them here and carry on
+                    Object resolved = resolved(item, hit);
+                    synchronized(this)
+                    {
+                        results[item] = resolved;
+                        inFlight--;
+                        collect(claimed);
+                    }
+                }
+                hand();
+            }
+            
+            /**
+             * Moves the finished items at the head to the ready queue and claims the next items to load.
+             * Must hold the lock.
+             */
+            private void collect(Queue<Integer> claimed)
+            {
+                while(head < results.length && results[head] != null)
+                {
+                    ready.add(results[head]);
+                    results[head++] = null;
+                }
+                // don't run too far ahead of a slow item at the head, or finished items pile up
+                while(inFlight < concurrency && next < items.size() && next < head + concurrency * 4)
+                {
+                    inFlight++;
+                    claimed.add(next++);
+                }
+            }
+            
+            /**
+             * Hands the ready items to the consumer, and finishes once the last one is handed over.
+             * One thread hands over at a time, so the consumer still gets them in playlist order.
+             */
+            @SuppressWarnings("unchecked")
+            private void hand()
+            {
+                synchronized(this)
+                {
+                    if(handing)
+                        return;
+                    handing = true;
+                }
+                while(true)
+                {
+                    Object done;
+                    synchronized(this)
+                    {
+                        done = ready.poll();
+                        if(done == null)
+                        {
+                            handing = false;
+                            if(processed < results.length || finished)
+                                return;
+                            finished = true;
+                        }
+                    }
+                    if(done == null)
+                    {
+                        finish();
+                        return;
+                    }
+                    if(done instanceof PlaylistLoadError)
+                        loadErrors.add((PlaylistLoadError) done);
+                    else if(!((List<AudioTrack>) done).isEmpty())
+                    {
+                        loadedTracks.addAll((List<AudioTrack>) done);
+                        consumer.accept((List<AudioTrack>) done);
+                    }
+                    processed++;
+                }
+            }
+            
+            private Object resolved(int index, List<AudioTrack> loaded)
+            {
+                if(loaded.size() == 1)
+                {
+                    if(config.isTooLong(loaded.get(0)))
+                        return new PlaylistLoadError(index, items.get(index), "This track is longer than the allowed maximum");
+                }
+                else
+                {
+                    loaded = new ArrayList<>(loaded);
+                    if(shuffle)
+                        PlaylistLoader.shuffle(loaded);
+                    loaded.removeIf(track -> config.isTooLong(track));
+                }
+                loaded.forEach(at -> at.setUserData(0L));
+                return loaded;
+            }
+            
+            private void finish()
+            {
+                if(cache != null)
+                    cache.save();
+                if(shuffle)
+                    PlaylistLoader.shuffle(loadedTracks);
+                tracks = loadedTracks;
+                errors = loadErrors;
+                if(callback != null)
+                    callback.run();
+            }
+            
+            private class ItemHandler implements AudioLoadResultHandler
+            {
+                private final int index;
+                
+                private ItemHandler(int index)
+                {
+                    this.index = index;
+                }
+                
+                private void loaded(List<AudioTrack> loaded)
+                {
+                    if(cache != null)
+                        cache.put(items.get(index), loaded);
+                    complete(index, resolved(index, loaded));
+                }
+                
+                private void error(String reason)
+                {
+                    complete(index, new PlaylistLoadError(index, items.get(index), reason));
+                }
+
+                @Override
+                public void trackLoaded(AudioTrack at) 
+                {
+                    loaded(Collections.singletonList(at));
+                }
+
+                @Override
+                public void playlistLoaded(AudioPlaylist ap) 
+                {
+                    if(ap.isSearchResult())
+                    {
+                        trackLoaded(ap.getTracks().get(0));
+                    }
+                    else if(ap.getSelectedTrack()!=null)
+                    {
+                        trackLoaded(ap.getSelectedTrack());
+                    }
+                    else
+                    {
+                        loaded(ap.getTracks());
+                    }
+                }
+
+                @Override
+                public void noMatches() 
+                {
+                    error("No matches found.");
+                }
+
+                @Override
+                public void loadFailed(FriendlyException fe) 
+                {
+                    error("Failed to load track: "+fe.getLocalizedMessage());
+                }
+            }
+        }
     }
     
     public class PlaylistLoadError
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.playlist;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageInput;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageOutput;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.DecodedTrackHolder;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An on-disk cache of what each line of a playlist file resolved to, stored as lavaplayer-encoded
+ * tracks, so that loading the playlist again doesn't resolve every line over the network.
+ *
+ * <p>Entries expire after a time to live, and the whole cache is discarded once the playlist file
+ * has been modified since the cache was written.
+ */
+class TrackCache
+{
+    private final static Logger LOG = LoggerFactory.getLogger(TrackCache.class);
+    private final static int FORMAT = 1;
+    private final static int MAX_LINE = 8192; // keeps lines within what writeUTF can store
+
+    private final Path file;
+    private final long modified;
+    private final long ttl;
+    private final AudioPlayerManager manager;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private boolean dirty = false;
+
+    private TrackCache(Path file, long modified, long ttl, AudioPlayerManager manager)
+    {
+        this.file = file;
+        this.modified = modified;
+        this.ttl = ttl;
+        this.manager = manager;
+    }
+
+    /**
+     * Reads the cache of a playlist, or starts an empty one if there is no usable cache.
+     *
+     * @param file where the cache is stored
+     * @param modified the last modified time of the playlist file
+     * @param ttl how long entries stay valid, in milliseconds
+     * @param manager the manager used to encode and decode tracks
+     * @return the cache
+     */
+    static TrackCache load(Path file, long modified, long ttl, AudioPlayerManager manager)
+    {
+        TrackCache cache = new TrackCache(file, modified, ttl, manager);
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
+        {
+            if(in.readInt() != FORMAT || in.readLong() != modified)
+                return cache;
+            long now = System.currentTimeMillis();
+            for(int i = in.readInt(); i > 0; i--)
+            {
+                String line = in.readUTF();
+                long saved = in.readLong();
+                List<byte[]> tracks = new ArrayList<>();
+                for(int j = in.readInt(); j > 0; j--)
+                {
+                    byte[] track = new byte[in.readInt()];
+                    in.readFully(track);
+                    tracks.add(track);
+                }
+                if(saved + ttl > now)
+                    cache.entries.put(line, new Entry(saved, tracks));
+            }
+        }
+        catch(NoSuchFileException ignored) {}
+        catch(IOException ex)
+        {
+            LOG.warn("Ignoring unreadable playlist cache "+file+": "+ex);
+            cache.entries.clear();
+        }
+        return cache;
+    }
+
+    /**
+     * Gets freshly decoded tracks for a line, if the line is cached and still valid.
+     *
+     * @param line the playlist line
+     * @return the tracks the line resolved to, or {@code null} if it needs to be loaded
+     */
+    synchronized List<AudioTrack> get(String line)
+    {
+        Entry entry = entries.get(line);
+        if(entry == null)
+            return null;
+        if(entry.saved + ttl <= System.currentTimeMillis())
+        {
+            entries.remove(line);
+            dirty = true;
+            return null;
+        }
+        try
+        {
+            List<AudioTrack> tracks = new ArrayList<>(entry.tracks.size());
+            for(byte[] encoded : entry.tracks)
+            {
+                DecodedTrackHolder holder = manager.decodeTrack(new MessageInput(new ByteArrayInputStream(encoded)));
+                if(holder == null || holder.decodedTrack == null)
+                    throw new IOException("Track could not be decoded");
+                tracks.add(holder.decodedTrack);
+            }
+            return tracks;
+        }
+        catch(IOException ex)
+        {
+            // e.g. the source manager the track came from is no longer registered
+            entries.remove(line);
+            dirty = true;
+            return null;
+        }
+    }
+
+    synchronized void put(String line, List<AudioTrack> tracks)
+    {
+        if(line.length() > MAX_LINE)
+            return;
+        try
+        {
+            List<byte[]> encoded = new ArrayList<>(tracks.size());
+            for(AudioTrack track : tracks)
+            {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                manager.encodeTrack(new MessageOutput(out), track);
+                encoded.add(out.toByteArray());
+            }
+            entries.put(line, new Entry(System.currentTimeMillis(), encoded));
+            dirty = true;
+        }
+        catch(IOException ex)
+        {
+            LOG.debug("Not caching playlist line "+line+": "+ex);
+        }
+    }
+
+    /**
+     * Writes the cache back to disk, if it changed.
+     *
+     * @return {@code false} if it changed but couldn't be written
+     */
+    synchronized boolean save()
+    {
+        if(!dirty)
+            return true;
+        Path temp = null;
+        try
+        {
+            Files.createDirectories(file.getParent());
+            // a temporary file of its own, since the same playlist can be loading in several
+            // guilds at once, each with its own cache to save
+            temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))))
+            {
+                out.writeInt(FORMAT);
+                out.writeLong(modified);
+                out.writeInt(entries.size());
+                for(Map.Entry<String, Entry> e : entries.entrySet())
+                {
+                    out.writeUTF(e.getKey());
+                    out.writeLong(e.getValue().saved);
+                    out.writeInt(e.getValue().tracks.size());
+                    for(byte[] track : e.getValue().tracks)
+                    {
+                        out.writeInt(track.length);
+                        out.write(track);
+                    }
+                }
+            }
+            try
+            {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch(AtomicMoveNotSupportedException ex)
+            {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            dirty = false;
+            return true;
+        }
+        catch(IOException ex)
+        {
+            LOG.warn("Failed to write playlist cache "+file+": "+ex);
+            try
+            {
+                if(temp != null)
+                    Files.deleteIfExists(temp);
+            }
+            catch(IOException ignored) {}
+            return false;
+        }
+    }
+
+    private static class Entry
+    {
+        private final long saved;
+        private final List<byte[]> tracks;
+
+        private Entry(long saved, List<byte[]> tracks)
+        {
+            this.saved = saved;
+            this.tracks = tracks;
+        }
+    }
+}
@@ -16,10 +16,18 @@
 package com.jagrosh.jmusicbot.queue;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 /**
+ * Base class for the guild queues.
+ *
+ * <p>A queue is mutated from command threads, audio loader threads and the player's track end
+ * callback, so every operation holds the queue's lock. The lock and the backing list are handed
+ * over when the queue type changes, so a guild keeps a single lock for its whole lifetime. Callers
+ * that need several operations to happen atomically (check a position, then remove it) should
+ * synchronize on {@link #getLock()}.
  *
  * @author Wolfgang Schwendtbauer
  * @param <T>
@@ -28,90 +36,186 @@ public abstract class AbstractQueue<T extends Queueable>
 {
     protected AbstractQueue(AbstractQueue<T> queue)
     {
-        this.list = queue != null ? queue.getList() : new LinkedList<>();
+        this.list = queue != null ? queue.getList() : new TreeList<>();
+        this.lock = queue != null ? queue.getLock() : new Object();
     }
 
     protected final List<T> list;
+    protected final Object lock;
+    private List<T> snapshot = null;
+    private int snapshotVersion = 0;
 
     public abstract int add(T item);
 
+    /**
+     * Adds several items in order, as if by calling {@link #add(Queueable)} for each of them,
+     * but under a single acquisition of the lock.
+     *
+     * @param items the items to add
+     * @return the position each item was added at, at the time it was added
+     */
+    public int[] addAll(Collection<? extends T> items)
+    {
+        synchronized(lock)
+        {
+            int[] positions = new int[items.size()];
+            int i = 0;
+            for(T item : items)
+                positions[i++] = add(item);
+            return positions;
+        }
+    }
+
     public void addAt(int index, T item)
     {
-        if(index >= list.size())
-            list.add(item);
-        else
-            list.add(index, item);
+        synchronized(lock)
+        {
+            if(index >= list.size())
+                list.add(item);
+            else
+                list.add(index, item);
+        }
     }
 
-    public int size() {
-        return list.size();
+    public int size()
+    {
+        synchronized(lock)
+        {
+            return list.size();
+        }
     }
 
-    public T pull() {
-        return list.remove(0);
+    public T pull()
+    {
+        synchronized(lock)
+        {
+            return list.remove(0);
+        }
     }
 
     public boolean isEmpty()
     {
-        return list.isEmpty();
+        synchronized(lock)
+        {
+            return list.isEmpty();
+        }
     }
 
+    /**
+     * Gets the live backing list. Iterating it is only safe while holding {@link #getLock()};
+     * readers should prefer {@link #getSnapshot()}.
+     *
+     * @return the backing list
+     */
     public List<T> getList()
     {
         return list;
     }
 
-    public T get(int index) {
-        return list.get(index);
+    /**
+     * Gets an immutable copy of the queue. The copy is cached until the queue is next modified,
+     * so repeated reads (for example paging through the queue) don't copy the list again.
+     *
+     * @return a snapshot of the queue
+     */
+    public List<T> getSnapshot()
+    {
+        synchronized(lock)
+        {
+            int version = ((TreeList<T>) list).version();
+            if(snapshot == null || version != snapshotVersion)
+            {
+                snapshot = Collections.unmodifiableList(new ArrayList<>(list));
+                snapshotVersion = version;
+            }
+            return snapshot;
+        }
+    }
+
+    public Object getLock()
+    {
+        return lock;
+    }
+
+    public T get(int index)
+    {
+        synchronized(lock)
+        {
+            return list.get(index);
+        }
     }
 
     public T remove(int index)
     {
-        return list.remove(index);
+        synchronized(lock)
+        {
+            return list.remove(index);
+        }
     }
 
     public int removeAll(long identifier)
     {
-        int count = 0;
-        for(int i=list.size()-1; i>=0; i--)
+        synchronized(lock)
         {
-            if(list.get(i).getIdentifier()==identifier)
+            int count = 0;
+            for(int i=list.size()-1; i>=0; i--)
             {
-                list.remove(i);
-                count++;
+                if(list.get(i).getIdentifier()==identifier)
+                {
+                    list.remove(i);
+                    count++;
+                }
             }
+            return count;
         }
-        return count;
     }
 
     public void clear()
     {
-        list.clear();
+        synchronized(lock)
+        {
+            list.clear();
+        }
     }
 
     public int shuffle(long identifier)
     {
-        List<Integer> iset = new ArrayList<>();
-        for(int i=0; i<list.size(); i++)
-        {
-            if(list.get(i).getIdentifier()==identifier)
-                iset.add(i);
-        }
-        for(int j=0; j<iset.size(); j++)
+        synchronized(lock)
         {
-            int first = iset.get(j);
-            int second = iset.get((int)(Math.random()*iset.size()));
-            T temp = list.get(first);
-            list.set(first, list.get(second));
-            list.set(second, temp);
+            // collect the entries in one pass and shuffle them off to the side, so only the
+            // final write-back touches the list by position
+            List<Integer> iset = new ArrayList<>();
+            List<T> items = new ArrayList<>();
+            int i = 0;
+            for(T item : list)
+            {
+                if(item.getIdentifier()==identifier)
+                {
+                    iset.add(i);
+                    items.add(item);
+                }
+                i++;
+            }
+            for(int j=0; j<items.size(); j++)
+            {
+                int second = (int)(Math.random()*items.size());
+                T temp = items.get(j);
+                items.set(j, items.get(second));
+                items.set(second, temp);
+            }
+            for(int j=0; j<iset.size(); j++)
+                list.set(iset.get(j), items.get(j));
+            return iset.size();
         }
-        return iset.size();
     }
 
     public void skip(int number)
     {
-        if (number > 0) {
-            list.subList(0, number).clear();
+        synchronized(lock)
+        {
+            if (number > 0) {
+                list.subList(0, number).clear();
+            }
         }
     }
 
@@ -123,8 +227,11 @@ public abstract class AbstractQueue<T extends Queueable>
      */
     public T moveItem(int from, int to)
     {
-        T item = list.remove(from);
-        list.add(to, item);
-        return item;
+        synchronized(lock)
+        {
+            T item = list.remove(from);
+            list.add(to, item);
+            return item;
+        }
     }
 }
@@ -15,40 +15,261 @@
  */
 package com.jagrosh.jmusicbot.queue;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
+ * A queue that interleaves entries round-robin by {@link Queueable#getIdentifier()}.
+ *
+ * <p>A new entry is placed after the requester's last entry, and then after every following
+ * entry up to the first identifier that repeats. Each requester has a bucket that tracks how many
+ * entries they have and where the last one is, so placing an entry no longer walks the whole
+ * queue; only the entries between the requester's last entry and the insert position are
+ * visited, and there are never more of those than there are requesters.
  *
  * @author John Grosh (jagrosh)
  * @param <T>
  */
 public class FairQueue<T extends Queueable> extends AbstractQueue<T>
 {
+    private final Map<Long, Bucket<T>> buckets = new HashMap<>();
+    private long scan = 0;
+    private int version;
+
     public FairQueue(AbstractQueue<T> queue)
     {
         super(queue);
+        synchronized(lock)
+        {
+            rebuild();
+        }
     }
 
-    protected final Set<Long> set = new HashSet<>();
-
     @Override
     public int add(T item)
     {
-        int lastIndex;
-        for(lastIndex=list.size()-1; lastIndex>-1; lastIndex--)
-            if(list.get(lastIndex).getIdentifier() == item.getIdentifier())
-                break;
-        lastIndex++;
-        set.clear();
-        for(; lastIndex<list.size(); lastIndex++)
+        synchronized(lock)
+        {
+            sync();
+            int index = place(item);
+            version = tree().version();
+            return index;
+        }
+    }
+
+    @Override
+    public int[] addAll(Collection<? extends T> items)
+    {
+        synchronized(lock)
+        {
+            sync();
+            TreeList<T> tree = tree();
+            int[] positions = new int[items.size()];
+            List<T> tail = new ArrayList<>();
+            long tailIdentifier = 0;
+            boolean atEnd = false;
+            int i = 0;
+            for(T item : items)
+            {
+                // once a requester's entry lands at the end of the queue, the rest of their run
+                // does too, so it is buffered and appended in one go
+                if(atEnd && item.getIdentifier() == tailIdentifier)
+                {
+                    positions[i++] = tree.size() + tail.size();
+                    tail.add(item);
+                    continue;
+                }
+                appendTail(tail, tailIdentifier);
+                positions[i] = place(item);
+                atEnd = positions[i] == tree.size() - 1;
+                tailIdentifier = item.getIdentifier();
+                i++;
+            }
+            appendTail(tail, tailIdentifier);
+            version = tree.version();
+            return positions;
+        }
+    }
+
+    @Override
+    public void addAt(int index, T item)
+    {
+        synchronized(lock)
+        {
+            sync();
+            TreeList<T> tree = tree();
+            TreeList.Node<T> n = tree.insert(Math.min(index, tree.size()), item);
+            Bucket<T> b = bucket(item.getIdentifier());
+            if(b.last == null || TreeList.indexOf(n) > TreeList.indexOf(b.last))
+                b.last = n;
+            b.count++;
+            version = tree.version();
+        }
+    }
+
+    @Override
+    public T pull()
+    {
+        return remove(0);
+    }
+
+    @Override
+    public T remove(int index)
+    {
+        synchronized(lock)
+        {
+            sync();
+            TreeList<T> tree = tree();
+            TreeList.Node<T> n = tree.node(index);
+            T item = tree.remove(index);
+            Bucket<T> b = buckets.get(item.getIdentifier());
+            if(--b.count == 0)
+                buckets.remove(item.getIdentifier());
+            else if(b.last == n)
+            {
+                // the requester's last entry was removed, so find the one before it
+                int i = index - 1;
+                while(tree.get(i).getIdentifier() != item.getIdentifier())
+                    i--;
+                b.last = tree.node(i);
+            }
+            version = tree.version();
+            return item;
+        }
+    }
+
+    @Override
+    public int removeAll(long identifier)
+    {
+        synchronized(lock)
+        {
+            sync();
+            int count = super.removeAll(identifier);
+            buckets.remove(identifier);
+            version = tree().version();
+            return count;
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        synchronized(lock)
+        {
+            super.clear();
+            buckets.clear();
+            version = tree().version();
+        }
+    }
+
+    @Override
+    public int shuffle(long identifier)
+    {
+        synchronized(lock)
+        {
+            sync();
+            // entries only swap places with entries of the same requester, so every bucket still
+            // points at one of its own entries
+            int count = super.shuffle(identifier);
+            version = tree().version();
+            return count;
+        }
+    }
+
+    @Override
+    public void skip(int number)
+    {
+        if(number <= 0)
+            return;
+        synchronized(lock)
         {
-            if(set.contains(list.get(lastIndex).getIdentifier()))
+            sync();
+            // a requester's last entry can only be skipped together with all of their others
+            for(T item : list.subList(0, number))
+                if(--buckets.get(item.getIdentifier()).count == 0)
+                    buckets.remove(item.getIdentifier());
+            super.skip(number);
+            version = tree().version();
+        }
+    }
+
+    @Override
+    public T moveItem(int from, int to)
+    {
+        synchronized(lock)
+        {
+            T item = remove(from);
+            addAt(to, item);
+            return item;
+        }
+    }
+
+    private int place(T item)
+    {
+        TreeList<T> tree = tree();
+        Bucket<T> bucket = bucket(item.getIdentifier());
+        int index = bucket.last == null ? 0 : TreeList.indexOf(bucket.last) + 1;
+        scan++;
+        for(TreeList.Node<T> n = index < tree.size() ? tree.node(index) : null; n != null; n = TreeList.successor(n))
+        {
+            Bucket<T> b = buckets.get(n.getValue().getIdentifier());
+            if(b.scan == scan)
                 break;
-            set.add(list.get(lastIndex).getIdentifier());
+            b.scan = scan;
+            index++;
+        }
+        bucket.last = tree.insert(index, item);
+        bucket.count++;
+        return index;
+    }
+
+    private void appendTail(List<T> tail, long identifier)
+    {
+        if(tail.isEmpty())
+            return;
+        Bucket<T> b = bucket(identifier);
+        b.last = tree().append(tail);
+        b.count += tail.size();
+        tail.clear();
+    }
+
+    private TreeList<T> tree()
+    {
+        return (TreeList<T>) list;
+    }
+
+    private void sync()
+    {
+        // the list is shared with the queue this one replaced, which may still have been used
+        if(version != tree().version())
+            rebuild();
+    }
+
+    private void rebuild()
+    {
+        TreeList<T> tree = tree();
+        buckets.clear();
+        for(TreeList.Node<T> n = tree.isEmpty() ? null : tree.node(0); n != null; n = TreeList.successor(n))
+        {
+            Bucket<T> b = bucket(n.getValue().getIdentifier());
+            b.count++;
+            b.last = n;
         }
-        list.add(lastIndex, item);
-        return lastIndex;
+        version = tree.version();
     }
 
+    private Bucket<T> bucket(long identifier)
+    {
+        return buckets.computeIfAbsent(identifier, id -> new Bucket<>());
+    }
+
+    private static class Bucket<T>
+    {
+        private int count;
+        private TreeList.Node<T> last;
+        private long scan;
+    }
 }
@@ -15,6 +15,8 @@
  */
 package com.jagrosh.jmusicbot.queue;
 
+import java.util.Collection;
+
 /**
  *
  * @author Wolfgang Schwendtbauer
@@ -30,8 +32,24 @@ public class LinearQueue<T extends Queueable> extends AbstractQueue<T>
     @Override
     public int add(T item)
     {
-        list.add(item);
-        return list.size() - 1;
+        synchronized(lock)
+        {
+            list.add(item);
+            return list.size() - 1;
+        }
+    }
+
+    @Override
+    public int[] addAll(Collection<? extends T> items)
+    {
+        synchronized(lock)
+        {
+            int[] positions = new int[items.size()];
+            for(int i=0; i<positions.length; i++)
+                positions[i] = list.size() + i;
+            list.addAll(items);
+            return positions;
+        }
     }
 
 }
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.queue;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * A {@link java.util.List List} backed by an order-statistic tree (an implicit treap), so that
+ * positional reads, inserts and removals all run in O(log n) instead of the O(n) pointer walks
+ * of a {@link java.util.LinkedList LinkedList}. Iteration is O(n) overall.
+ *
+ * <p>This is the storage used by every {@link AbstractQueue}.
+ *
+ * @param <T>
+ */
+public class TreeList<T> extends AbstractList<T> implements RandomAccess
+{
+    private Node<T> root;
+    private int version = 0;
+    private int seed = (int) System.nanoTime() | 1;
+
+    @Override
+    public int size()
+    {
+        return size(root);
+    }
+
+    @Override
+    public T get(int index)
+    {
+        return node(index).value;
+    }
+
+    @Override
+    public T set(int index, T value)
+    {
+        Node<T> n = node(index);
+        T old = n.value;
+        n.value = value;
+        version++;
+        return old;
+    }
+
+    @Override
+    public void add(int index, T value)
+    {
+        checkPositionIndex(index);
+        insert(index, value);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> values)
+    {
+        return append(values) != null;
+    }
+
+    @Override
+    public T remove(int index)
+    {
+        checkElementIndex(index);
+        Node<T>[] lr = split(root, index);
+        Node<T>[] mr = split(lr[1], 1);
+        root = merge(lr[0], mr[1]);
+        detach(root);
+        modCount++;
+        version++;
+        return mr[0].value;
+    }
+
+    @Override
+    public void clear()
+    {
+        root = null;
+        modCount++;
+        version++;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex)
+    {
+        if(fromIndex >= toIndex)
+            return;
+        Node<T>[] lr = split(root, fromIndex);
+        Node<T>[] mr = split(lr[1], toIndex - fromIndex);
+        root = merge(lr[0], mr[1]);
+        detach(root);
+        modCount++;
+        version++;
+    }
+
+    @Override
+    public Iterator<T> iterator()
+    {
+        return new Itr();
+    }
+
+    /**
+     * Gets a counter that changes on every modification, including {@link #set(int, Object)}
+     * which does not count as a structural modification for iterators.
+     *
+     * @return the current version
+     */
+    int version()
+    {
+        return version;
+    }
+
+    // Package-private node access, used by queues that track positions of their own entries
+    Node<T> insert(int index, T value)
+    {
+        Node<T> n = new Node<>(value, nextPriority());
+        Node<T>[] lr = split(root, index);
+        root = merge(merge(lr[0], n), lr[1]);
+        detach(root);
+        modCount++;
+        version++;
+        return n;
+    }
+
+    Node<T> append(Collection<? extends T> values)
+    {
+        // builds the new entries into a treap of their own in linear time and joins it on the
+        // end, instead of splitting and merging once per entry
+        if(values.isEmpty())
+            return null;
+        Deque<Node<T>> spine = new ArrayDeque<>();
+        Node<T> n = null;
+        for(T value : values)
+        {
+            n = new Node<>(value, nextPriority());
+            Node<T> left = null;
+            while(!spine.isEmpty() && spine.peek().priority < n.priority)
+                left = spine.pop();
+            n.left = left;
+            if(!spine.isEmpty())
+                spine.peek().right = n;
+            spine.push(n);
+        }
+        root = merge(root, resize(spine.peekLast()));
+        detach(root);
+        modCount++;
+        version++;
+        return n;
+    }
+
+    Node<T> node(int index)
+    {
+        checkElementIndex(index);
+        Node<T> n = root;
+        while(true)
+        {
+            int left = size(n.left);
+            if(index < left)
+                n = n.left;
+            else if(index == left)
+                return n;
+            else
+            {
+                index -= left + 1;
+                n = n.right;
+            }
+        }
+    }
+
+    static int indexOf(Node<?> n)
+    {
+        int index = size(n.left);
+        while(n.parent != null)
+        {
+            if(n.parent.right == n)
+                index += size(n.parent.left) + 1;
+            n = n.parent;
+        }
+        return index;
+    }
+
+    static <T> Node<T> successor(Node<T> n)
+    {
+        if(n.right != null)
+        {
+            n = n.right;
+            while(n.left != null)
+                n = n.left;
+            return n;
+        }
+        while(n.parent != null && n.parent.right == n)
+            n = n.parent;
+        return n.parent;
+    }
+
+    // Treap internals
+    private int nextPriority()
+    {
+        // xorshift; the priorities only need to be well mixed, not secure
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+    private static int size(Node<?> n)
+    {
+        return n == null ? 0 : n.size;
+    }
+
+    private static <T> void update(Node<T> n)
+    {
+        n.size = 1 + size(n.left) + size(n.right);
+        if(n.left != null)
+            n.left.parent = n;
+        if(n.right != null)
+            n.right.parent = n;
+    }
+
+    private static <T> Node<T> resize(Node<T> n)
+    {
+        if(n != null)
+        {
+            resize(n.left);
+            resize(n.right);
+            update(n);
+        }
+        return n;
+    }
+
+    private static void detach(Node<?> n)
+    {
+        if(n != null)
+            n.parent = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Node<T>[] split(Node<T> n, int count)
+    {
+        // splits into the first 'count' nodes and the rest
+        if(n == null)
+            return new Node[]{null, null};
+        if(size(n.left) >= count)
+        {
+            Node<T>[] lr = split(n.left, count);
+            n.left = lr[1];
+            update(n);
+            detach(lr[0]);
+            return new Node[]{lr[0], n};
+        }
+        else
+        {
+            Node<T>[] lr = split(n.right, count - size(n.left) - 1);
+            n.right = lr[0];
+            update(n);
+            detach(lr[1]);
+            return new Node[]{n, lr[1]};
+        }
+    }
+
+    private static <T> Node<T> merge(Node<T> a, Node<T> b)
+    {
+        if(a == null)
+            return b;
+        if(b == null)
+            return a;
+        if(a.priority > b.priority)
+        {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        else
+        {
+            b.left = merge(a, b.left);
+            update(b);
+            return b;
+        }
+    }
+
+    private void checkElementIndex(int index)
+    {
+        if(index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size());
+    }
+
+    private void checkPositionIndex(int index)
+    {
+        if(index < 0 || index > size())
+            throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size());
+    }
+
+    static final class Node<T>
+    {
+        private T value;
+        private final int priority;
+        private int size = 1;
+        private Node<T> left, right, parent;
+
+        private Node(T value, int priority)
+        {
+            this.value = value;
+            this.priority = priority;
+        }
+
+        T getValue()
+        {
+            return value;
+        }
+    }
+
+    private class Itr implements Iterator<T>
+    {
+        private Node<T> next = root == null ? null : leftmost(root);
+        private Node<T> lastReturned;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext()
+        {
+            return next != null;
+        }
+
+        @Override
+        public T next()
+        {
+            if(modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            if(next == null)
+                throw new NoSuchElementException();
+            lastReturned = next;
+            next = successor(next);
+            return lastReturned.value;
+        }
+
+        @Override
+        public void remove()
+        {
+            if(lastReturned == null)
+                throw new IllegalStateException();
+            if(modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+            int index = indexOf(lastReturned);
+            lastReturned = null;
+            // removing splits and re-merges the tree, so the next node is found again by position
+            TreeList.this.remove(index);
+            next = index < size() ? node(index) : null;
+            expectedModCount = modCount;
+        }
+
+        private Node<T> leftmost(Node<T> n)
+        {
+            while(n.left != null)
+                n = n.left;
+            return n;
+        }
+    }
+}
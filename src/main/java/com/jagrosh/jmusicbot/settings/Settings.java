@@ -30,6 +30,7 @@ import net.dv8tion.jda.api.entities.channel.concrete.VoiceChannel;
 public class Settings implements GuildSettingsProvider
 {
     private final SettingsManager manager;
+    protected final long guildId;
     protected long textId;
     protected long voiceId;
     protected long roleId;
@@ -38,11 +39,13 @@ public class Settings implements GuildSettingsProvider
     private RepeatMode repeatMode;
     private QueueType queueType;
     private String prefix;
+    private Collection<String> prefixes; // handed out as-is, so the command client can tell when it changes
     private double skipRatio;
 
-    public Settings(SettingsManager manager, String textId, String voiceId, String roleId, int volume, String defaultPlaylist, RepeatMode repeatMode, String prefix, double skipRatio, QueueType queueType)
+    public Settings(SettingsManager manager, long guildId, String textId, String voiceId, String roleId, int volume, String defaultPlaylist, RepeatMode repeatMode, String prefix, double skipRatio, QueueType queueType)
     {
         this.manager = manager;
+        this.guildId = guildId;
         try
         {
             this.textId = Long.parseLong(textId);
@@ -71,13 +74,15 @@ public class Settings implements GuildSettingsProvider
         this.defaultPlaylist = defaultPlaylist;
         this.repeatMode = repeatMode;
         this.prefix = prefix;
+        this.prefixes = toPrefixes(prefix);
         this.skipRatio = skipRatio;
         this.queueType = queueType;
     }
     
-    public Settings(SettingsManager manager, long textId, long voiceId, long roleId, int volume, String defaultPlaylist, RepeatMode repeatMode, String prefix, double skipRatio, QueueType queueType)
+    public Settings(SettingsManager manager, long guildId, long textId, long voiceId, long roleId, int volume, String defaultPlaylist, RepeatMode repeatMode, String prefix, double skipRatio, QueueType queueType)
     {
         this.manager = manager;
+        this.guildId = guildId;
         this.textId = textId;
         this.voiceId = voiceId;
         this.roleId = roleId;
@@ -85,6 +90,7 @@ public class Settings implements GuildSettingsProvider
         this.defaultPlaylist = defaultPlaylist;
         this.repeatMode = repeatMode;
         this.prefix = prefix;
+        this.prefixes = toPrefixes(prefix);
         this.skipRatio = skipRatio;
         this.queueType = queueType;
     }
@@ -138,61 +144,67 @@ public class Settings implements GuildSettingsProvider
     @Override
     public Collection<String> getPrefixes()
     {
-        return prefix == null ? Collections.emptySet() : Collections.singleton(prefix);
+        return prefixes;
     }
     
     // Setters
     public void setTextChannel(TextChannel tc)
     {
         this.textId = tc == null ? 0 : tc.getIdLong();
-        this.manager.writeSettings();
+        this.manager.markDirty(this);
     }
     
     public void setVoiceChannel(VoiceChannel vc)
     {
         this.voiceId = vc == null ? 0 : vc.getIdLong();
-        this.manager.writeSettings();
+        this.manager.markDirty(this);
     }
     
     public void setDJRole(Role role)
     {
         this.roleId = role == null ? 0 : role.getIdLong();
-        this.manager.writeSettings();
+        this.manager.markDirty(this);
     }
     
     public void setVolume(int volume)
     {
         this.volume = volume;
-        this.manager.writeSettings();
+        this.manager.markDirty(this);
     }
     
     public void setDefaultPlaylist(String defaultPlaylist)
     {
         this.defaultPlaylist = defaultPlaylist;
-        this.manager.writeSettings();
+        this.manager.markDirty(this);
     }
     
     public void setRepeatMode(RepeatMode mode)
     {
         this.repeatMode = mode;
-        this.manager.writeSettings();
+        this.manager.markDirty(this);
     }
     
     public void setPrefix(String prefix)
     {
         this.prefix = prefix;
-        this.manager.writeSettings();
+        this.prefixes = toPrefixes(prefix);
+        this.manager.markDirty(this);
     }
 
     public void setSkipRatio(double skipRatio)
     {
         this.skipRatio = skipRatio;
-        this.manager.writeSettings();
+        this.manager.markDirty(this);
     }
 
     public void setQueueType(QueueType queueType)
     {
         this.queueType = queueType;
-        this.manager.writeSettings();
+        this.manager.markDirty(this);
+    }
+    
+    private static Collection<String> toPrefixes(String prefix)
+    {
+        return prefix == null ? Collections.emptySet() : Collections.singleton(prefix);
     }
 }
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.settings;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Maps guild ids to where their settings object sits in the settings snapshot, so that a guild's
+ * settings can be parsed the first time they are needed instead of all at startup.
+ *
+ * <p>Building the index streams through the file once and keeps nothing but two {@code long}s
+ * per guild in a primitive open-addressing table.
+ */
+class SettingsIndex
+{
+    private final long[] keys;
+    private final long[] spans; // offset << 24 | length
+    private int size = 0;
+
+    private SettingsIndex(int expected)
+    {
+        int capacity = 16;
+        while(capacity < expected * 2)
+            capacity <<= 1;
+        this.keys = new long[capacity];
+        this.spans = new long[capacity];
+    }
+
+    static SettingsIndex empty()
+    {
+        return new SettingsIndex(0);
+    }
+
+    /**
+     * Scans a snapshot ({@code {"id": {...}, ...}}) and records where each guild's object is.
+     *
+     * @param file the snapshot
+     * @return the index
+     * @throws IOException if the file can't be read or isn't a JSON object of objects
+     */
+    static SettingsIndex build(Path file) throws IOException
+    {
+        Builder builder = new Builder();
+        try(InputStream in = new BufferedInputStream(Files.newInputStream(file)))
+        {
+            long offset = 0, start = 0;
+            int depth = 0, b;
+            boolean inString = false, escaped = false;
+            StringBuilder key = new StringBuilder();
+            long id = 0;
+            while((b = in.read()) != -1)
+            {
+                if(inString)
+                {
+                    if(escaped)
+                        escaped = false;
+                    else if(b == '\\')
+                        escaped = true;
+                    else if(b == '"')
+                    {
+                        inString = false;
+                        if(depth == 1 && key.length() > 0)
+                            id = parseId(key);
+                    }
+                    else if(depth == 1)
+                        key.append((char) b);
+                }
+                else if(b == '"')
+                {
+                    inString = true;
+                    key.setLength(0);
+                }
+                else if(b == '{' || b == '[')
+                {
+                    if(depth == 1)
+                        start = offset;
+                    depth++;
+                }
+                else if(b == '}' || b == ']')
+                {
+                    depth--;
+                    if(depth == 1 && b == '}')
+                        builder.add(id, start, (int) (offset - start + 1));
+                    else if(depth < 0)
+                        throw new IOException("Unbalanced settings file");
+                }
+                offset++;
+            }
+            if(depth != 0 || inString)
+                throw new IOException("Truncated settings file");
+        }
+        return builder.build();
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    boolean contains(long id)
+    {
+        return slot(id) >= 0;
+    }
+
+    /**
+     * Reads the settings object of one guild out of the snapshot.
+     *
+     * @param file the snapshot this index was built from
+     * @param id the guild id
+     * @return the JSON text of the guild's settings, or {@code null} if the guild isn't indexed
+     * @throws IOException if the file can't be read
+     */
+    String read(Path file, long id) throws IOException
+    {
+        if(!contains(id))
+            return null;
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+        {
+            return read(channel, id);
+        }
+    }
+
+    String read(FileChannel channel, long id) throws IOException
+    {
+        int slot = slot(id);
+        if(slot < 0)
+            return null;
+        long offset = spans[slot] >>> 24;
+        int length = (int) (spans[slot] & 0xFFFFFF);
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while(buffer.hasRemaining())
+            if(channel.read(buffer, offset + buffer.position()) < 0)
+                throw new IOException("Settings file is shorter than its index");
+        return new String(buffer.array(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets every indexed guild id, in no particular order.
+     *
+     * @return the ids
+     */
+    long[] ids()
+    {
+        long[] ids = new long[size];
+        int i = 0;
+        for(long key : keys)
+            if(key != 0)
+                ids[i++] = key;
+        return ids;
+    }
+
+    private int slot(long id)
+    {
+        int mask = keys.length - 1;
+        for(int i = hash(id) & mask; keys[i] != 0; i = (i + 1) & mask)
+            if(keys[i] == id)
+                return i;
+        return -1;
+    }
+
+    private void put(long id, long span)
+    {
+        int mask = keys.length - 1;
+        int i = hash(id) & mask;
+        while(keys[i] != 0 && keys[i] != id)
+            i = (i + 1) & mask;
+        if(keys[i] == 0)
+            size++;
+        keys[i] = id;
+        spans[i] = span;
+    }
+
+    private static int hash(long id)
+    {
+        long h = (id ^ (id >>> 32)) * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32);
+    }
+
+    private static long parseId(CharSequence key)
+    {
+        try
+        {
+            return Long.parseLong(key.toString());
+        }
+        catch(NumberFormatException ex)
+        {
+            return 0;
+        }
+    }
+
+    /**
+     * Collects entries for a new index, either from a scan or while writing a new snapshot.
+     */
+    static class Builder
+    {
+        private long[] ids = new long[64];
+        private long[] spans = new long[64];
+        private int count = 0;
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        /**
+         * Appends a guild to a snapshot being written by this builder.
+         *
+         * @param id the guild id
+         * @param json the guild's settings object
+         */
+        void write(long id, String json)
+        {
+            byte[] prefix = ((out.size() == 0 ? "{\n" : ",\n") + "    \"" + id + "\": ").getBytes(StandardCharsets.UTF_8);
+            byte[] value = json.getBytes(StandardCharsets.UTF_8);
+            out.write(prefix, 0, prefix.length);
+            add(id, out.size(), value.length);
+            out.write(value, 0, value.length);
+        }
+
+        /**
+         * Gets the snapshot written with {@link #write(long, String)}.
+         *
+         * @return the snapshot's bytes
+         */
+        byte[] toBytes()
+        {
+            byte[] end = (out.size() == 0 ? "{}\n" : "\n}\n").getBytes(StandardCharsets.UTF_8);
+            ByteArrayOutputStream snapshot = new ByteArrayOutputStream(out.size() + end.length);
+            snapshot.write(out.toByteArray(), 0, out.size());
+            snapshot.write(end, 0, end.length);
+            return snapshot.toByteArray();
+        }
+
+        private void add(long id, long offset, int length)
+        {
+            if(id == 0 || length > 0xFFFFFF)
+                return;
+            if(count == ids.length)
+            {
+                ids = Arrays.copyOf(ids, count * 2);
+                spans = Arrays.copyOf(spans, count * 2);
+            }
+            ids[count] = id;
+            spans[count] = offset << 24 | length;
+            count++;
+        }
+
+        SettingsIndex build()
+        {
+            SettingsIndex index = new SettingsIndex(count);
+            for(int i=0; i<count; i++)
+                index.put(ids[i], spans[i]);
+            return index;
+        }
+    }
+}
@@ -16,11 +16,24 @@
 package com.jagrosh.jmusicbot.settings;
 
 import com.jagrosh.jdautilities.command.GuildSettingsManager;
+import com.jagrosh.jdautilities.commons.utils.LatencyHistogram;
+import com.jagrosh.jmusicbot.utils.ConcurrentLongMap;
 import com.jagrosh.jmusicbot.utils.OtherUtil;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
-import java.util.HashMap;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import net.dv8tion.jda.api.entities.Guild;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -28,6 +41,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Loads and stores the settings of every guild.
+ *
+ * <p>Settings are kept in two files: a snapshot of every guild in {@code serversettings.json},
+ * in the same format as always, and a journal next to it that gets one compact line appended
+ * per changed guild. Writing a change therefore costs only that guild's record; once the journal
+ * holds more records than there are guilds it is folded back into a fresh snapshot. On startup
+ * the snapshot is read and the journal is replayed over it.
+ *
+ * <p>In lazy mode the snapshot is only indexed at startup (see {@link SettingsIndex}), and each
+ * guild's settings are parsed the first time they are asked for.
  *
  * @author John Grosh (john.a.grosh@gmail.com)
  */
@@ -35,47 +58,69 @@ public class SettingsManager implements GuildSettingsManager<Settings>
 {
     private final static Logger LOG = LoggerFactory.getLogger("Settings");
     private final static String SETTINGS_FILE = "serversettings.json";
-    private final HashMap<Long,Settings> settings;
+    private final static String JOURNAL_FILE = "serversettings.journal";
+    private final static long FLUSH_DELAY = 1000; // milliseconds
+    private final static int MIN_COMPACT_RECORDS = 1000;
+    private final Path settingsFile, journalFile, tempFile;
+    private final ConcurrentLongMap<Settings> settings;
+    private final Set<Settings> dirty = new HashSet<>();
+    private final Object fileLock = new Object();
+    private final ScheduledThreadPoolExecutor writer;
+    private final LatencyHistogram writeLatency = new LatencyHistogram();
+    private boolean flushScheduled = false;
+    private boolean shutdown = false;
+    private int journalRecords = 0;
+    private SettingsIndex index = SettingsIndex.empty(); // guarded by fileLock
+
+    public SettingsManager(boolean lazy)
+    {
+        this(lazy, OtherUtil.getPath(SETTINGS_FILE), OtherUtil.getPath(JOURNAL_FILE), OtherUtil.getPath(SETTINGS_FILE + ".tmp"));
+    }
+
+    SettingsManager(boolean lazy, Path directory)
+    {
+        this(lazy, directory.resolve(SETTINGS_FILE), directory.resolve(JOURNAL_FILE), directory.resolve(SETTINGS_FILE + ".tmp"));
+    }
 
-    public SettingsManager()
+    private SettingsManager(boolean lazy, Path settingsFile, Path journalFile, Path tempFile)
     {
-        this.settings = new HashMap<>();
+        this.settingsFile = settingsFile;
+        this.journalFile = journalFile;
+        this.tempFile = tempFile;
+        this.settings = new ConcurrentLongMap<>();
+        this.writer = new ScheduledThreadPoolExecutor(1, r -> 
+        {
+            Thread t = new Thread(r, "settings-writer");
+            t.setDaemon(true);
+            return t;
+        });
+        // on shutdown, a pending delayed flush is dropped and done right away instead
+        this.writer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
 
         try {
-            JSONObject loadedSettings = new JSONObject(new String(Files.readAllBytes(OtherUtil.getPath(SETTINGS_FILE))));
-            loadedSettings.keySet().forEach((id) -> {
-                JSONObject o = loadedSettings.getJSONObject(id);
-
-                // Legacy version support: On versions 0.3.3 and older, the repeat mode was represented as a boolean.
-                if (!o.has("repeat_mode") && o.has("repeat") && o.getBoolean("repeat"))
-                    o.put("repeat_mode", RepeatMode.ALL);
-
-
-                settings.put(Long.parseLong(id), new Settings(this,
-                        o.has("text_channel_id") ? o.getString("text_channel_id")            : null,
-                        o.has("voice_channel_id")? o.getString("voice_channel_id")           : null,
-                        o.has("dj_role_id")      ? o.getString("dj_role_id")                 : null,
-                        o.has("volume")          ? o.getInt("volume")                        : 100,
-                        o.has("default_playlist")? o.getString("default_playlist")           : null,
-                        o.has("repeat_mode")     ? o.getEnum(RepeatMode.class, "repeat_mode"): RepeatMode.OFF,
-                        o.has("prefix")          ? o.getString("prefix")                     : null,
-                        o.has("skip_ratio")      ? o.getDouble("skip_ratio")                 : -1,
-                        o.has("queue_type")      ? o.getEnum(QueueType.class, "queue_type")  : QueueType.FAIR));
-            });
+            if(lazy)
+            {
+                index = SettingsIndex.build(settingsFile);
+                LOG.info("serversettings.json indexed from " + settingsFile.toAbsolutePath() + " (" + index.size() + " guilds)");
+            }
+            else
+            {
+                load(new JSONObject(new String(Files.readAllBytes(settingsFile), StandardCharsets.UTF_8)));
+                LOG.info("serversettings.json loaded from " + settingsFile.toAbsolutePath());
+            }
         } catch (NoSuchFileException e) {
             // create an empty json file
             try {
-                LOG.info("serversettings.json will be created in " + OtherUtil.getPath("serversettings.json").toAbsolutePath());
-                Files.write(OtherUtil.getPath("serversettings.json"), new JSONObject().toString(4).getBytes());
+                LOG.info("serversettings.json will be created in " + settingsFile.toAbsolutePath());
+                Files.write(settingsFile, new JSONObject().toString(4).getBytes());
             } catch(IOException ex) {
                 LOG.warn("Failed to create new settings file: "+ex);
             }
-            return;
         } catch(IOException | JSONException e) {
             LOG.warn("Failed to load server settings: "+e);
         }
 
-        LOG.info("serversettings.json loaded from " + OtherUtil.getPath("serversettings.json").toAbsolutePath());
+        replayJournal();
     }
 
     /**
@@ -92,44 +137,268 @@ public class SettingsManager implements GuildSettingsManager<Settings>
 
     public Settings getSettings(long guildId)
     {
-        return settings.computeIfAbsent(guildId, id -> createDefaultSettings());
-    }
-
-    private Settings createDefaultSettings()
-    {
-        return new Settings(this, 0, 0, 0, 100, null, RepeatMode.OFF, null, -1, QueueType.FAIR);
-    }
-
-    protected void writeSettings()
-    {
-        JSONObject obj = new JSONObject();
-        settings.keySet().stream().forEach(key -> {
-            JSONObject o = new JSONObject();
-            Settings s = settings.get(key);
-            if(s.textId!=0)
-                o.put("text_channel_id", Long.toString(s.textId));
-            if(s.voiceId!=0)
-                o.put("voice_channel_id", Long.toString(s.voiceId));
-            if(s.roleId!=0)
-                o.put("dj_role_id", Long.toString(s.roleId));
-            if(s.getVolume()!=100)
-                o.put("volume",s.getVolume());
-            if(s.getDefaultPlaylist() != null)
-                o.put("default_playlist", s.getDefaultPlaylist());
-            if(s.getRepeatMode()!=RepeatMode.OFF)
-                o.put("repeat_mode", s.getRepeatMode());
-            if(s.getPrefix() != null)
-                o.put("prefix", s.getPrefix());
-            if(s.getSkipRatio() != -1)
-                o.put("skip_ratio", s.getSkipRatio());
-            if(s.getQueueType() != QueueType.FAIR)
-                o.put("queue_type", s.getQueueType().name());
-            obj.put(Long.toString(key), o);
-        });
+        Settings existing = settings.get(guildId);
+        if(existing != null)
+            return existing;
+        // read outside the map's lock, so a slow read doesn't hold up other guilds; if two
+        // threads load the same guild at once, the first one stored wins
+        Settings loaded = loadSettings(guildId);
+        existing = settings.putIfAbsent(guildId, loaded);
+        return existing == null ? loaded : existing;
+    }
+
+    private Settings loadSettings(long guildId)
+    {
         try {
-            Files.write(OtherUtil.getPath(SETTINGS_FILE), obj.toString(4).getBytes());
+            String json;
+            synchronized(fileLock)
+            {
+                json = index.read(settingsFile, guildId);
+            }
+            if(json != null)
+                return fromJson(guildId, new JSONObject(json));
+        } catch(IOException | JSONException e) {
+            LOG.warn("Failed to load settings for guild "+guildId+": "+e);
+        }
+        return createDefaultSettings(guildId);
+    }
+
+    private Settings createDefaultSettings(long guildId)
+    {
+        return new Settings(this, guildId, 0, 0, 0, 100, null, RepeatMode.OFF, null, -1, QueueType.FAIR);
+    }
+
+    /**
+     * Marks a guild's settings as changed. Changes are written behind, so that a burst of changes
+     * costs a single write, and at most {@value #FLUSH_DELAY} ms pass before it happens.
+     *
+     * @param changed the settings that changed
+     */
+    protected void markDirty(Settings changed)
+    {
+        synchronized(dirty)
+        {
+            dirty.add(changed);
+            if(!shutdown)
+            {
+                if(!flushScheduled)
+                {
+                    writer.schedule(this::flush, FLUSH_DELAY, TimeUnit.MILLISECONDS);
+                    flushScheduled = true;
+                }
+                return;
+            }
+        }
+        // nothing is left to write it later
+        flush();
+    }
+
+    /**
+     * Gets the number of guilds with changes that have not been written yet.
+     *
+     * @return the number of pending guilds
+     */
+    public int getPendingWrites()
+    {
+        synchronized(dirty)
+        {
+            return dirty.size();
+        }
+    }
+
+    /**
+     * Writes all pending changes now.
+     */
+    public void flush()
+    {
+        synchronized(fileLock)
+        {
+            List<Settings> changed;
+            synchronized(dirty)
+            {
+                flushScheduled = false;
+                if(dirty.isEmpty())
+                    return;
+                changed = new ArrayList<>(dirty);
+                dirty.clear();
+            }
+            long start = System.nanoTime();
+            appendJournal(changed);
+            if(journalRecords > Math.max(MIN_COMPACT_RECORDS, Math.max(settings.size(), index.size())))
+                compact();
+            writeLatency.record(System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * Gets how long each flush of pending changes to disk took.
+     * 
+     * @return the histogram of write times
+     */
+    public LatencyHistogram getWriteLatency()
+    {
+        return writeLatency;
+    }
+
+    /**
+     * Stops writing behind and writes all pending changes. This is also run from a shutdown hook,
+     * so it can be called more than once, and a second caller returns once the writing is done.
+     */
+    @Override
+    public void shutdown()
+    {
+        boolean first;
+        synchronized(dirty)
+        {
+            first = !shutdown;
+            shutdown = true;
+        }
+        if(!first)
+        {
+            // waits for a flush already underway on another thread
+            flush();
+            return;
+        }
+        writer.shutdown();
+        try
+        {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        catch(InterruptedException ignored) {}
+        flush();
+    }
+
+    private void load(JSONObject loadedSettings)
+    {
+        loadedSettings.keySet().forEach((id) -> 
+                settings.put(Long.parseLong(id), fromJson(Long.parseLong(id), loadedSettings.getJSONObject(id))));
+    }
+
+    private Settings fromJson(long guildId, JSONObject o)
+    {
+        // Legacy version support: On versions 0.3.3 and older, the repeat mode was represented as a boolean.
+        if (!o.has("repeat_mode") && o.has("repeat") && o.getBoolean("repeat"))
+            o.put("repeat_mode", RepeatMode.ALL);
+
+
+        return new Settings(this, guildId,
+                o.has("text_channel_id") ? o.getString("text_channel_id")            : null,
+                o.has("voice_channel_id")? o.getString("voice_channel_id")           : null,
+                o.has("dj_role_id")      ? o.getString("dj_role_id")                 : null,
+                o.has("volume")          ? o.getInt("volume")                        : 100,
+                o.has("default_playlist")? o.getString("default_playlist")           : null,
+                o.has("repeat_mode")     ? o.getEnum(RepeatMode.class, "repeat_mode"): RepeatMode.OFF,
+                o.has("prefix")          ? o.getString("prefix")                     : null,
+                o.has("skip_ratio")      ? o.getDouble("skip_ratio")                 : -1,
+                o.has("queue_type")      ? o.getEnum(QueueType.class, "queue_type")  : QueueType.FAIR);
+    }
+
+    private void replayJournal()
+    {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(journalFile);
+        } catch (NoSuchFileException e) {
+            return;
+        } catch(IOException e) {
+            LOG.warn("Failed to read settings journal: "+e);
+            return;
+        }
+        boolean torn = false;
+        for(String line : lines)
+        {
+            if(line.isEmpty())
+                continue;
+            try {
+                // each record is a one-guild object in the same format as the snapshot
+                load(new JSONObject(line));
+                journalRecords++;
+            } catch(JSONException e) {
+                // only the last record can be cut short, by a crash while it was appended
+                LOG.warn("Skipping unreadable settings journal record: "+e);
+                torn = true;
+            }
+        }
+        if(torn || journalRecords > Math.max(MIN_COMPACT_RECORDS, Math.max(settings.size(), index.size())))
+            compact();
+    }
+
+    private void appendJournal(List<Settings> changed)
+    {
+        StringBuilder sb = new StringBuilder();
+        for(Settings s : changed)
+        {
+            JSONObject record = new JSONObject();
+            record.put(Long.toString(s.guildId), toJson(s));
+            sb.append(record.toString()).append('\n');
+        }
+        try {
+            Files.write(journalFile, sb.toString().getBytes(StandardCharsets.UTF_8), 
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            journalRecords += changed.size();
+        } catch(IOException ex) {
+            // the journal may now end in a partial record, so fall back to a full snapshot
+            LOG.warn("Failed to append to settings journal: "+ex);
+            compact();
+        }
+    }
+
+    private void compact()
+    {
+        // one guild per line; guilds that were never asked for are copied over from the old
+        // snapshot as they are, without parsing them
+        SettingsIndex.Builder snapshot = new SettingsIndex.Builder();
+        try {
+            for(Settings s : settings.values())
+                snapshot.write(s.guildId, toJson(s).toString());
+            if(index.size() > 0)
+            {
+                try(FileChannel channel = FileChannel.open(settingsFile, StandardOpenOption.READ))
+                {
+                    for(long id : index.ids())
+                        if(settings.get(id) == null)
+                            snapshot.write(id, index.read(channel, id));
+                }
+            }
+            // write a temporary file and move it over the old one, so a crash mid-write
+            // leaves the previous settings intact instead of a torn file
+            Files.write(tempFile, snapshot.toBytes());
+            try {
+                Files.move(tempFile, settingsFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch(AtomicMoveNotSupportedException ex) {
+                Files.move(tempFile, settingsFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            index = snapshot.build();
+            // the snapshot now holds everything; replaying a journal left by a crash
+            // right here would only re-apply the same values
+            Files.deleteIfExists(journalFile);
+            journalRecords = 0;
         } catch(IOException ex){
             LOG.warn("Failed to write to file: "+ex);
         }
     }
+
+    private JSONObject toJson(Settings s)
+    {
+        JSONObject o = new JSONObject();
+        if(s.textId!=0)
+            o.put("text_channel_id", Long.toString(s.textId));
+        if(s.voiceId!=0)
+            o.put("voice_channel_id", Long.toString(s.voiceId));
+        if(s.roleId!=0)
+            o.put("dj_role_id", Long.toString(s.roleId));
+        if(s.getVolume()!=100)
+            o.put("volume",s.getVolume());
+        if(s.getDefaultPlaylist() != null)
+            o.put("default_playlist", s.getDefaultPlaylist());
+        if(s.getRepeatMode()!=RepeatMode.OFF)
+            o.put("repeat_mode", s.getRepeatMode());
+        if(s.getPrefix() != null)
+            o.put("prefix", s.getPrefix());
+        if(s.getSkipRatio() != -1)
+            o.put("skip_ratio", s.getSkipRatio());
+        if(s.getQueueType() != QueueType.FAIR)
+            o.put("queue_type", s.getQueueType().name());
+        return o;
+    }
 }
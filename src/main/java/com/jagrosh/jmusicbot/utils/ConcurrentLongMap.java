@@ -0,0 +1,181 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongFunction;
+
+/**
+ * A concurrent map from primitive {@code long} keys (such as guild ids) to values.
+ *
+ * <p>Reads take no lock and box nothing: the table and its chains are only ever published with
+ * volatile writes, and chain nodes never change once published. Writes are serialized on the
+ * map itself, which suits maps like guild settings that are read constantly and written rarely.
+ *
+ * @param <V>
+ */
+public class ConcurrentLongMap<V>
+{
+    private static final int INITIAL_CAPACITY = 64;
+
+    private volatile AtomicReferenceArray<Node<V>> table = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+    private volatile int size = 0;
+
+    public V get(long key)
+    {
+        AtomicReferenceArray<Node<V>> tab = table;
+        for(Node<V> n = tab.get(index(key, tab.length())); n != null; n = n.next)
+            if(n.key == key)
+                return n.value;
+        return null;
+    }
+
+    public V computeIfAbsent(long key, LongFunction<? extends V> function)
+    {
+        V value = get(key);
+        if(value != null)
+            return value;
+        synchronized(this)
+        {
+            value = get(key);
+            if(value == null)
+            {
+                value = function.apply(key);
+                if(value != null)
+                    insert(key, value);
+            }
+            return value;
+        }
+    }
+
+    public synchronized V put(long key, V value)
+    {
+        V old = get(key);
+        insert(key, value);
+        return old;
+    }
+
+    /**
+     * Stores a value unless the key already has one. Unlike {@link #computeIfAbsent}, the value
+     * is made before the lock is taken, so making it can be slow without holding up other writes.
+     *
+     * @param key the key
+     * @param value the value to store
+     * @return the value already stored, or {@code null} if this one was
+     */
+    public V putIfAbsent(long key, V value)
+    {
+        V old = get(key);
+        if(old != null)
+            return old;
+        synchronized(this)
+        {
+            old = get(key);
+            if(old == null)
+                insert(key, value);
+            return old;
+        }
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    /**
+     * Gets a copy of the values, in no particular order.
+     *
+     * @return the values
+     */
+    public List<V> values()
+    {
+        AtomicReferenceArray<Node<V>> tab = table;
+        List<V> values = new ArrayList<>(size);
+        for(int i=0; i<tab.length(); i++)
+            for(Node<V> n = tab.get(i); n != null; n = n.next)
+                values.add(n.value);
+        return values;
+    }
+
+    // Must hold the lock
+    private void insert(long key, V value)
+    {
+        AtomicReferenceArray<Node<V>> tab = table;
+        int i = index(key, tab.length());
+        Node<V> head = tab.get(i);
+        // nodes are immutable, so replacing a key copies the part of the chain in front of it
+        Node<V> chain = new Node<>(key, value, without(head, key));
+        tab.set(i, chain);
+        if(chain.next == head)
+            size++;
+        if(size > tab.length() * 3 / 4)
+            resize();
+    }
+
+    private void resize()
+    {
+        AtomicReferenceArray<Node<V>> old = table;
+        AtomicReferenceArray<Node<V>> tab = new AtomicReferenceArray<>(old.length() * 2);
+        for(int i=0; i<old.length(); i++)
+        {
+            for(Node<V> n = old.get(i); n != null; n = n.next)
+            {
+                int j = index(n.key, tab.length());
+                tab.set(j, new Node<>(n.key, n.value, tab.get(j)));
+            }
+        }
+        table = tab;
+    }
+
+    private static <V> Node<V> without(Node<V> n, long key)
+    {
+        if(n == null)
+            return null;
+        if(n.key == key)
+            return n.next;
+        Node<V> rest = without(n.next, key);
+        return rest == n.next ? n : new Node<>(n.key, n.value, rest);
+    }
+
+    private static int index(long key, int length)
+    {
+        // snowflake ids vary little in their low bits, so fold and mix before masking
+        long h = key ^ (key >>> 32);
+        h *= 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & (length - 1);
+    }
+
+    private static final class Node<V>
+    {
+        private final long key;
+        private final V value;
+        private final Node<V> next;
+
+        private Node(long key, V value, Node<V> next)
+        {
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+}
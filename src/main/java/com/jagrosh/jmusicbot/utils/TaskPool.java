@@ -0,0 +1,324 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A named scheduled thread pool that keeps timing statistics for each kind of task it runs.
+ * Tasks scheduled through the methods taking a task name are counted under that name, and
+ * anything else is counted under the name of the pool.
+ */
+public class TaskPool extends ScheduledThreadPoolExecutor
+{
+    private final String name;
+    private final Map<String, TaskStats> stats = new ConcurrentHashMap<>();
+    private final ThreadLocal<Naming> naming = new ThreadLocal<>();
+    
+    public TaskPool(String name, int threads)
+    {
+        super(Math.max(1, threads), new NamedThreadFactory(name));
+        this.name = name;
+        setRemoveOnCancelPolicy(true);
+    }
+    
+    public String getName()
+    {
+        return name;
+    }
+    
+    /**
+     * Gets how many tasks are waiting in the pool, including periodic tasks waiting for their
+     * next run.
+     * 
+     * @return the number of queued tasks
+     */
+    public int getQueueDepth()
+    {
+        return getQueue().size();
+    }
+    
+    public List<TaskStats> getStats()
+    {
+        return new ArrayList<>(stats.values());
+    }
+    
+    public Future<?> submit(String task, Runnable command)
+    {
+        naming.set(new Naming(task, 0));
+        try
+        {
+            return submit(command);
+        }
+        finally
+        {
+            naming.remove();
+        }
+    }
+    
+    public ScheduledFuture<?> schedule(String task, Runnable command, long delay, TimeUnit unit)
+    {
+        naming.set(new Naming(task, 0));
+        try
+        {
+            return schedule(command, delay, unit);
+        }
+        finally
+        {
+            naming.remove();
+        }
+    }
+    
+    public ScheduledFuture<?> scheduleWithFixedDelay(String task, Runnable command, long initialDelay, long delay, TimeUnit unit)
+    {
+        naming.set(new Naming(task, unit.toNanos(delay)));
+        try
+        {
+            return scheduleWithFixedDelay(command, initialDelay, delay, unit);
+        }
+        finally
+        {
+            naming.remove();
+        }
+    }
+
+    @Override
+    protected <V> RunnableScheduledFuture<V> decorateTask(Runnable runnable, RunnableScheduledFuture<V> task)
+    {
+        return timed(task);
+    }
+
+    @Override
+    protected <V> RunnableScheduledFuture<V> decorateTask(Callable<V> callable, RunnableScheduledFuture<V> task)
+    {
+        return timed(task);
+    }
+    
+    private <V> RunnableScheduledFuture<V> timed(RunnableScheduledFuture<V> task)
+    {
+        Naming current = naming.get();
+        String key = current == null ? name : current.task;
+        return new Timed<>(task, stats.computeIfAbsent(key, TaskStats::new), current == null ? 0 : current.period);
+    }
+    
+    /**
+     * How one kind of task has been doing.
+     */
+    public static class TaskStats
+    {
+        private final String name;
+        private final LongAdder runs = new LongAdder(), totalNanos = new LongAdder();
+        private final LongAdder overruns = new LongAdder(), failures = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong(), maxLateNanos = new AtomicLong();
+        
+        private TaskStats(String name)
+        {
+            this.name = name;
+        }
+        
+        private void record(long late, long took, long period)
+        {
+            runs.increment();
+            totalNanos.add(took);
+            maxNanos.accumulateAndGet(took, Math::max);
+            maxLateNanos.accumulateAndGet(late, Math::max);
+            if(period > 0 && took > period)
+                overruns.increment();
+        }
+        
+        public String getName()
+        {
+            return name;
+        }
+        
+        public long getRuns()
+        {
+            return runs.sum();
+        }
+        
+        public long getTotalNanos()
+        {
+            return totalNanos.sum();
+        }
+        
+        public long getMaxNanos()
+        {
+            return maxNanos.get();
+        }
+        
+        /**
+         * Gets the longest a run of this task has had to wait past the time it was due, which
+         * is how long it was stuck behind other tasks.
+         * 
+         * @return the longest wait, in nanoseconds
+         */
+        public long getMaxLateNanos()
+        {
+            return maxLateNanos.get();
+        }
+        
+        /**
+         * Gets how many runs of a periodic task took longer than the delay between its runs.
+         * 
+         * @return the number of overruns
+         */
+        public long getOverruns()
+        {
+            return overruns.sum();
+        }
+        
+        /**
+         * Gets how many periodic runs threw, which also stops the task from running again.
+         * 
+         * @return the number of failures
+         */
+        public long getFailures()
+        {
+            return failures.sum();
+        }
+    }
+    
+    private static class Naming
+    {
+        private final String task;
+        private final long period;
+        
+        private Naming(String task, long period)
+        {
+            this.task = task;
+            this.period = period;
+        }
+    }
+    
+    private class Timed<V> implements RunnableScheduledFuture<V>
+    {
+        private final RunnableScheduledFuture<V> task;
+        private final TaskStats stats;
+        private final long period;
+        
+        private Timed(RunnableScheduledFuture<V> task, TaskStats stats, long period)
+        {
+            this.task = task;
+            this.stats = stats;
+            this.period = period;
+        }
+
+        @Override
+        public void run()
+        {
+            long late = Math.max(0, -task.getDelay(TimeUnit.NANOSECONDS));
+            long start = System.nanoTime();
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                stats.record(late, System.nanoTime() - start, period);
+                // a periodic task is only ever done after a run if it threw or was cancelled
+                if(task.isPeriodic() && task.isDone() && !task.isCancelled())
+                    stats.failures.increment();
+            }
+        }
+
+        @Override
+        public boolean isPeriodic()
+        {
+            return task.isPeriodic();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit)
+        {
+            return task.getDelay(unit);
+        }
+
+        @Override
+        public int compareTo(Delayed other)
+        {
+            return task.compareTo(other instanceof TaskPool.Timed ? ((TaskPool.Timed<?>) other).task : other);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning)
+        {
+            // the pool only knows to remove the task it was handed, which is this one
+            boolean cancelled = task.cancel(mayInterruptIfRunning);
+            if(cancelled && getRemoveOnCancelPolicy())
+                remove(this);
+            return cancelled;
+        }
+
+        @Override
+        public boolean isCancelled()
+        {
+            return task.isCancelled();
+        }
+
+        @Override
+        public boolean isDone()
+        {
+            return task.isDone();
+        }
+
+        @Override
+        public V get() throws InterruptedException, ExecutionException
+        {
+            return task.get();
+        }
+
+        @Override
+        public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException
+        {
+            return task.get(timeout, unit);
+        }
+    }
+    
+    private static class NamedThreadFactory implements ThreadFactory
+    {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+        
+        private NamedThreadFactory(String name)
+        {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+            Thread thread = new Thread(runnable, "jmusicbot-" + name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import com.jagrosh.jdautilities.command.Command;
+import com.jagrosh.jdautilities.command.CommandEvent;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.channel.ChannelType;
+import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CommandClientImplTest
+{
+    private final CommandClientImpl client = new CommandClientImpl("1", null, "!", null, null, null, null,
+            null, null, null, null, null, new ArrayList<>(), false, false, null, null, null, 0, null, null, null, 0);
+
+    @After
+    public void shutdown()
+    {
+        client.shutdown();
+    }
+
+    @Test
+    public void stringMethodsSeeCommandCooldowns()
+    {
+        for(Command.CooldownScope scope : new Command.CooldownScope[]{Command.CooldownScope.USER, Command.CooldownScope.CHANNEL,
+                Command.CooldownScope.USER_CHANNEL, Command.CooldownScope.SHARD, Command.CooldownScope.GLOBAL})
+        {
+            Command command = command("Ping" + scope.ordinal(), scope);
+            client.addCommand(command);
+            CommandEvent event = event(10, 20);
+            String key = command.getCooldownKey(event);
+
+            assertEquals(0, client.getRemainingCooldown(key));
+            assertEquals(0, client.applyCooldown(command, event));
+            assertEquals(key, 30, client.getRemainingCooldown(key));
+            assertNotNull(client.getCooldown(key));
+            // and the other way round
+            client.applyCooldown(key, 90);
+            assertEquals(key, 90, client.applyCooldown(command, event));
+        }
+    }
+
+    @Test
+    public void keepsCommandCooldownsApart()
+    {
+        Command command = command("ping", Command.CooldownScope.USER_CHANNEL);
+        client.addCommand(command);
+        assertEquals(0, client.applyCooldown(command, event(10, 20)));
+
+        assertEquals(0, client.getRemainingCooldown(command.getCooldownKey(event(11, 20))));
+        assertEquals(0, client.getRemainingCooldown(command.getCooldownKey(event(10, 21))));
+        assertEquals(0, client.applyCooldown(command, event(10, 21)));
+        // a key for a command this client doesn't have is only a name
+        assertEquals(0, client.getRemainingCooldown("pong|U:10|C:20"));
+        client.applyCooldown("pong|U:10|C:20", 5);
+        assertEquals(5, client.getRemainingCooldown("pong|U:10|C:20"));
+        client.applyCooldown("daily", 5);
+        assertEquals(5, client.getRemainingCooldown("daily"));
+    }
+
+    private static Command command(String commandName, Command.CooldownScope scope)
+    {
+        return new Command()
+        {
+            {
+                this.name = commandName;
+                this.cooldown = 30;
+                this.cooldownScope = scope;
+            }
+
+            @Override
+            protected void execute(CommandEvent event) {}
+        };
+    }
+
+    private CommandEvent event(long user, long channel)
+    {
+        Map<String, Object> answers = new HashMap<>();
+        answers.put("getType", ChannelType.PRIVATE);
+        MessageChannelUnion messageChannel = stub(MessageChannelUnion.class, channel, answers);
+        User author = stub(User.class, user, answers);
+        answers.clear();
+        answers.put("getChannel", messageChannel);
+        answers.put("getAuthor", author);
+        answers.put("isWebhookMessage", false);
+        Message message = stub(Message.class, 1, answers);
+        JDA jda = stub(JDA.class, 0, new HashMap<>());
+        return new CommandEvent(new MessageReceivedEvent(jda, 0, message), "", client);
+    }
+
+    private static <T> T stub(Class<T> type, long id, Map<String, Object> answers)
+    {
+        Map<String, Object> copy = new HashMap<>(answers);
+        copy.put("getIdLong", id);
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) ->
+        {
+            if(method.getName().equals("hashCode"))
+                return System.identityHashCode(proxy);
+            if(method.getName().equals("equals"))
+                return proxy == args[0];
+            return copy.get(method.getName());
+        }));
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CooldownsTest
+{
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void appliesOnlyOnceUntilExpired()
+    {
+        AtomicLong clock = new AtomicLong(-5 * SECOND); // nanoTime can be negative
+        Cooldowns<String> cooldowns = new Cooldowns<>(clock::get);
+        assertEquals(0, cooldowns.tryApply("a", 10 * SECOND));
+        clock.addAndGet(4 * SECOND);
+        assertEquals(6 * SECOND, cooldowns.tryApply("a", 10 * SECOND));
+        assertEquals(6 * SECOND, cooldowns.remaining("a"));
+        assertEquals(0, cooldowns.remaining("b"));
+        clock.addAndGet(6 * SECOND);
+        assertEquals(0, cooldowns.remaining("a"));
+        assertEquals(0, cooldowns.tryApply("a", 10 * SECOND));
+        assertEquals(10 * SECOND, cooldowns.remaining("a"));
+    }
+
+    @Test
+    public void applyReplaces()
+    {
+        AtomicLong clock = new AtomicLong();
+        Cooldowns<String> cooldowns = new Cooldowns<>(clock::get);
+        cooldowns.apply("a", 10 * SECOND);
+        cooldowns.apply("a", 2 * SECOND);
+        assertEquals(2 * SECOND, cooldowns.remaining("a"));
+    }
+
+    @Test
+    public void sweepsExpiredCooldowns()
+    {
+        AtomicLong clock = new AtomicLong(123);
+        Cooldowns<Integer> cooldowns = new Cooldowns<>(clock::get);
+        for(int i = 0; i < 100; i++)
+            cooldowns.apply(i, (i + 1) * SECOND);
+        assertEquals(100, cooldowns.size());
+        clock.addAndGet(30 * SECOND);
+        cooldowns.sweep();
+        // anything that ran out before the last whole second is gone
+        assertTrue(String.valueOf(cooldowns.size()), cooldowns.size() >= 70 && cooldowns.size() <= 72);
+        // longer than a turn of the wheel
+        clock.addAndGet(200 * SECOND);
+        cooldowns.sweep();
+        assertEquals(0, cooldowns.size());
+    }
+
+    @Test
+    public void onlyOneCallerGetsPast() throws Exception
+    {
+        Cooldowns<String> cooldowns = new Cooldowns<>();
+        AtomicInteger applied = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1), done = new CountDownLatch(8);
+        for(int t = 0; t < 8; t++)
+        {
+            new Thread(() ->
+            {
+                try
+                {
+                    start.await();
+                    for(int i = 0; i < 1000; i++)
+                    {
+                        if(cooldowns.tryApply("key" + i, 60 * SECOND) == 0)
+                            applied.incrementAndGet();
+                    }
+                }
+                catch(InterruptedException ignored) {}
+                done.countDown();
+            }).start();
+        }
+        start.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1000, applied.get());
+    }
+}
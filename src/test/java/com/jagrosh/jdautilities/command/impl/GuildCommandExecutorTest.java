@@ -0,0 +1,131 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GuildCommandExecutorTest
+{
+    @Test
+    public void runsEachGuildInOrder() throws Exception
+    {
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        try
+        {
+            GuildCommandExecutor executor = new GuildCommandExecutor(workers, 1000);
+            List<List<Integer>> runs = new CopyOnWriteArrayList<>();
+            AtomicInteger[] running = new AtomicInteger[4];
+            CountDownLatch done = new CountDownLatch(4 * 200);
+            for(int g = 0; g < 4; g++)
+            {
+                runs.add(new CopyOnWriteArrayList<>());
+                running[g] = new AtomicInteger();
+            }
+            for(int i = 0; i < 200; i++)
+            {
+                for(int g = 0; g < 4; g++)
+                {
+                    int guild = g, index = i;
+                    assertTrue(executor.submit(guild, () ->
+                    {
+                        assertEquals(1, running[guild].incrementAndGet());
+                        runs.get(guild).add(index);
+                        running[guild].decrementAndGet();
+                        done.countDown();
+                    }));
+                }
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            for(List<Integer> run : runs)
+            {
+                assertEquals(200, run.size());
+                for(int i = 0; i < run.size(); i++)
+                    assertEquals(i, (int) run.get(i));
+            }
+        }
+        finally
+        {
+            workers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void turnsAwayWhenGuildQueueIsFull() throws Exception
+    {
+        ExecutorService workers = Executors.newFixedThreadPool(2);
+        try
+        {
+            GuildCommandExecutor executor = new GuildCommandExecutor(workers, 2);
+            CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1), other = new CountDownLatch(1);
+            assertTrue(executor.submit(1, () ->
+            {
+                started.countDown();
+                await(release);
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            assertTrue(executor.submit(1, () -> {}));
+            assertTrue(executor.submit(1, () -> {}));
+            assertFalse(executor.submit(1, () -> {}));
+            // another guild isn't held up by the busy one
+            assertTrue(executor.submit(2, other::countDown));
+            assertTrue(other.await(5, TimeUnit.SECONDS));
+            release.countDown();
+        }
+        finally
+        {
+            workers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void keepsRunningAfterAFailure() throws Exception
+    {
+        ExecutorService workers = Executors.newSingleThreadExecutor();
+        try
+        {
+            GuildCommandExecutor executor = new GuildCommandExecutor(workers, 10);
+            CountDownLatch done = new CountDownLatch(1);
+            executor.submit(1, () -> { throw new IllegalStateException("expected"); });
+            executor.submit(1, done::countDown);
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            workers.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await(5, TimeUnit.SECONDS);
+        }
+        catch(InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.command.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class PrefixMatcherTest
+{
+    @Test
+    public void matchesFirstPrefixIgnoringCase()
+    {
+        PrefixMatcher matcher = PrefixMatcher.of(Arrays.asList("<@123>", "!!", null, "!"));
+        assertEquals(2, matcher.match("!!play song"));
+        assertEquals(2, matcher.match("!!"));
+        assertEquals(1, matcher.match("!play"));
+        assertEquals(6, matcher.match("<@123> play"));
+        assertEquals(-1, matcher.match("<@1234> play"));
+        assertEquals(-1, matcher.match("hello"));
+        assertEquals(-1, matcher.match(""));
+
+        PrefixMatcher words = PrefixMatcher.of(Arrays.asList("Music ", "m?"));
+        assertEquals(6, words.match("MUSIC play"));
+        assertEquals(6, words.match("music play"));
+        assertEquals(2, words.match("M?skip"));
+        assertEquals(-1, words.match("musicplay"));
+    }
+
+    @Test
+    public void emptyPrefixMatchesEverything()
+    {
+        assertEquals(-1, PrefixMatcher.of(Collections.emptyList()).match("!play"));
+        assertEquals(0, PrefixMatcher.of(Arrays.asList("!", "")).match("play"));
+        assertEquals(0, PrefixMatcher.of(Collections.singletonList("")).match(""));
+    }
+
+    /**
+     * Rough comparison against lowercasing the message for every prefix, on messages that aren't commands.
+     * Skipped unless run with {@code -Dbenchmark=true}.
+     */
+    @Test
+    public void nonCommandBenchmark()
+    {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+        String[] prefixes = {"<@123456789012345678>", "<@!123456789012345678>", "@mention", "!!", "m!"};
+        PrefixMatcher matcher = PrefixMatcher.of(Arrays.asList(prefixes));
+        Random random = new Random(5);
+        String[] messages = new String[1024];
+        for(int i=0; i<messages.length; i++)
+        {
+            StringBuilder sb = new StringBuilder();
+            int length = 10 + random.nextInt(200);
+            for(int j=0; j<length; j++)
+                sb.append(random.nextInt(8) == 0 ? ' ' : (char) ('A' + random.nextInt(58)));
+            messages[i] = sb.toString();
+        }
+        int rounds = 1_000_000;
+        for(int round=0; round<3; round++)
+        {
+            long start = System.nanoTime();
+            int hits = 0;
+            for(int i=0; i<rounds; i++)
+            {
+                String content = messages[i & 1023];
+                for(String prefix : prefixes)
+                {
+                    if(content.toLowerCase().startsWith(prefix.toLowerCase()))
+                    {
+                        hits++;
+                        break;
+                    }
+                }
+            }
+            report("toLowerCase", start, rounds, hits);
+            start = System.nanoTime();
+            hits = 0;
+            for(int i=0; i<rounds; i++)
+            {
+                if(matcher.match(messages[i & 1023]) != -1)
+                    hits++;
+            }
+            report("PrefixMatcher", start, rounds, hits);
+        }
+    }
+
+    private static void report(String name, long start, int messages, int hits)
+    {
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println(String.format("%-13s %,6d ms for %,d messages (%d commands)", name, millis, messages, hits));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commons.utils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LinkedReplyCacheTest
+{
+    @Test
+    public void linksRepliesToCalls()
+    {
+        LinkedReplyCache cache = new LinkedReplyCache(10);
+        cache.add(snowflake(1), 100, 1001);
+        cache.add(snowflake(1), 100, 1002);
+        cache.add(snowflake(2), 200, 2001);
+        assertArrayEquals(new long[]{100, 1001, 100, 1002}, cache.get(snowflake(1)));
+        assertArrayEquals(new long[]{200, 2001}, cache.remove(snowflake(2)));
+        assertNull(cache.get(snowflake(2)));
+        assertNull(cache.remove(snowflake(3)));
+    }
+
+    @Test
+    public void dropsOldestCallsPastCapacity()
+    {
+        LinkedReplyCache cache = new LinkedReplyCache(160);
+        for(int i = 1; i <= 10_000; i++)
+            cache.add(snowflake(i), 1, i);
+        assertTrue(String.valueOf(cache.size()), cache.size() <= 160 && cache.size() > 100);
+        assertNotNull(cache.get(snowflake(10_000)));
+        assertNull(cache.get(snowflake(1)));
+    }
+
+    @Test
+    public void relinkingARemovedCallTakesOneSlot()
+    {
+        // two calls a stripe
+        LinkedReplyCache cache = new LinkedReplyCache(32);
+        long call = snowflake(1);
+        cache.add(call, 100, 1001);
+        cache.remove(call);
+        cache.add(call, 100, 1002);
+        long other = snowflake(2);
+        while(LinkedReplyCache.stripe(other) != LinkedReplyCache.stripe(call))
+            other++;
+        cache.add(other, 200, 2001);
+        assertArrayEquals(new long[]{100, 1002}, cache.get(call));
+        assertArrayEquals(new long[]{200, 2001}, cache.get(other));
+    }
+
+    @Test
+    public void keepsEveryReplyUnderContention() throws Exception
+    {
+        LinkedReplyCache cache = new LinkedReplyCache(1000);
+        CountDownLatch start = new CountDownLatch(1), done = new CountDownLatch(4);
+        for(int t = 0; t < 4; t++)
+        {
+            int thread = t;
+            new Thread(() ->
+            {
+                try
+                {
+                    start.await();
+                }
+                catch(InterruptedException ignored) {}
+                for(int i = 0; i < 500; i++)
+                    cache.add(snowflake(i % 50), thread, i);
+                done.countDown();
+            }).start();
+        }
+        start.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        int replies = 0;
+        for(int i = 0; i < 50; i++)
+            replies += cache.get(snowflake(i)).length / 2;
+        assertEquals(2000, replies);
+    }
+
+    private static long snowflake(int i)
+    {
+        // ten ids a millisecond, like a busy bot sees
+        return ((1_700_000_000_000L + i / 10) << 22) | (i % 10);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jdautilities.commons.waiter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TimeoutWheelTest
+{
+    @Test
+    public void runsTimeoutsInTheirTick()
+    {
+        AtomicLong clock = new AtomicLong(-7_000_000); // nanoTime can be negative
+        TimeoutWheel wheel = new TimeoutWheel(null, 10, TimeUnit.MILLISECONDS, clock::get);
+        List<Integer> fired = new ArrayList<>();
+        for(int i = 1; i <= 5; i++)
+        {
+            int delay = i * 30;
+            wheel.schedule(() -> fired.add(delay), delay, TimeUnit.MILLISECONDS);
+        }
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(75));
+        wheel.expire();
+        assertEquals(2, fired.size());
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        wheel.expire();
+        assertEquals(5, fired.size());
+        assertEquals(0, wheel.getPending());
+        for(int i = 0; i < 5; i++)
+            assertEquals((i + 1) * 30, (int) fired.get(i));
+    }
+
+    @Test
+    public void skipsCancelledTimeouts()
+    {
+        AtomicLong clock = new AtomicLong();
+        TimeoutWheel wheel = new TimeoutWheel(null, 10, TimeUnit.MILLISECONDS, clock::get);
+        AtomicInteger fired = new AtomicInteger();
+        TimeoutWheel.Timeout timeout = wheel.schedule(fired::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        wheel.expire();
+        assertEquals(0, fired.get());
+        assertEquals(0, wheel.getPending());
+    }
+
+    @Test
+    public void waitsForLaterTurnsOfTheWheel()
+    {
+        AtomicLong clock = new AtomicLong();
+        TimeoutWheel wheel = new TimeoutWheel(null, 10, TimeUnit.MILLISECONDS, clock::get);
+        AtomicInteger fired = new AtomicInteger();
+        // one turn of the wheel is 512 ticks, or 5.12 seconds
+        wheel.schedule(fired::incrementAndGet, 12, TimeUnit.SECONDS);
+        for(int i = 0; i < 1190; i++)
+        {
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+            wheel.expire();
+        }
+        assertEquals(0, fired.get());
+        for(int i = 0; i < 20; i++)
+        {
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+            wheel.expire();
+        }
+        assertEquals(1, fired.get());
+    }
+
+    @Test
+    public void ticksOnTheScheduler() throws Exception
+    {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        try
+        {
+            TimeoutWheel wheel = new TimeoutWheel(scheduler, 5, TimeUnit.MILLISECONDS);
+            CountDownLatch fired = new CountDownLatch(100);
+            long start = System.nanoTime();
+            for(int i = 0; i < 100; i++)
+                wheel.schedule(fired::countDown, 20 + i % 10, TimeUnit.MILLISECONDS);
+            assertTrue(fired.await(5, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+        }
+        finally
+        {
+            scheduler.shutdownNow();
+        }
+    }
+}
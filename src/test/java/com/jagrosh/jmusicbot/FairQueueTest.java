@@ -17,6 +17,11 @@ package com.jagrosh.jmusicbot;
 
 import com.jagrosh.jmusicbot.queue.FairQueue;
 import com.jagrosh.jmusicbot.queue.Queueable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -46,7 +51,103 @@ public class FairQueueTest
         assertEquals(queue.size(), size);
     }
     
-    private class Q implements Queueable
+    @Test
+    public void interleavesRoundRobin()
+    {
+        FairQueue<Q> queue = new FairQueue<>(null);
+        for(int i=0; i<3; i++)
+            queue.add(new Q(1));
+        queue.add(new Q(2));
+        queue.add(new Q(3));
+        queue.add(new Q(2));
+        assertEquals("[1, 2, 3, 1, 2, 1]", queue.getList().toString());
+    }
+    
+    @Test
+    public void matchesListScanOrder()
+    {
+        // the previous implementation, kept here as the reference for the placement order
+        Random random = new Random(7);
+        FairQueue<Q> queue = new FairQueue<>(null);
+        List<Q> expected = new ArrayList<>();
+        for(int i=0; i<5000; i++)
+        {
+            int op = random.nextInt(10);
+            if(op < 6 || expected.isEmpty())
+            {
+                Q q = new Q(random.nextInt(8));
+                assertEquals(referenceAdd(expected, q), queue.add(q));
+            }
+            else if(op == 6)
+                assertSame(expected.remove(0), queue.pull());
+            else if(op == 7)
+            {
+                int index = random.nextInt(expected.size());
+                assertSame(expected.remove(index), queue.remove(index));
+            }
+            else if(op == 8)
+            {
+                Q q = new Q(random.nextInt(8));
+                expected.add(0, q);
+                queue.addAt(0, q);
+            }
+            else if(random.nextBoolean())
+            {
+                int number = random.nextInt(Math.min(3, expected.size()));
+                expected.subList(0, number).clear();
+                queue.skip(number);
+            }
+            else
+            {
+                int from = random.nextInt(expected.size()), to = random.nextInt(expected.size());
+                expected.add(to, expected.remove(from));
+                queue.moveItem(from, to);
+            }
+            assertEquals(expected, queue.getList());
+        }
+    }
+    
+    @Test
+    public void addAllMatchesRepeatedAdd()
+    {
+        Random random = new Random(11);
+        FairQueue<Q> queue = new FairQueue<>(null);
+        List<Q> expected = new ArrayList<>();
+        for(int i=0; i<300; i++)
+        {
+            // mostly single-requester runs like playlists, sometimes mixed
+            List<Q> batch = new ArrayList<>();
+            int identifier = random.nextInt(6);
+            for(int j=random.nextInt(40); j>0; j--)
+                batch.add(new Q(random.nextInt(4) == 0 ? random.nextInt(6) : identifier));
+            int[] positions = queue.addAll(batch);
+            for(int j=0; j<batch.size(); j++)
+                assertEquals(referenceAdd(expected, batch.get(j)), positions[j]);
+            assertEquals(expected, queue.getList());
+            for(int j=random.nextInt(30); j>0 && !expected.isEmpty(); j--)
+                assertSame(expected.remove(0), queue.pull());
+        }
+    }
+
+    private static int referenceAdd(List<Q> list, Q item)
+    {
+        int lastIndex;
+        for(lastIndex=list.size()-1; lastIndex>-1; lastIndex--)
+            if(list.get(lastIndex).getIdentifier() == item.getIdentifier())
+                break;
+        lastIndex++;
+        Set<Long> set = new HashSet<>();
+        for(; lastIndex<list.size(); lastIndex++)
+        {
+            if(set.contains(list.get(lastIndex).getIdentifier()))
+                break;
+            set.add(list.get(lastIndex).getIdentifier());
+        }
+        list.add(lastIndex, item);
+        return lastIndex;
+    }
+    
+    private static class Q implements Queueable
     {
         private final long identifier;
         
@@ -60,5 +161,11 @@ public class FairQueueTest
         {
             return identifier;
         }
+        
+        @Override
+        public String toString()
+        {
+            return Long.toString(identifier);
+        }
     }
 }
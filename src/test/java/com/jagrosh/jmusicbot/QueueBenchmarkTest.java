@@ -0,0 +1,64 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.queue.TreeList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+import org.junit.Test;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Rough comparison of positional queue operations on the old and new queue storage.
+ * Skipped unless run with {@code -Dbenchmark=true}.
+ */
+public class QueueBenchmarkTest
+{
+    private static final int OPERATIONS = 5000;
+
+    @Test
+    public void positionalOperations()
+    {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+        for(int size : new int[]{10_000, 100_000})
+        {
+            run("LinkedList", size, LinkedList::new);
+            run("TreeList", size, TreeList::new);
+        }
+    }
+
+    private static void run(String name, int size, Supplier<List<Integer>> supplier)
+    {
+        List<Integer> list = supplier.get();
+        for(int i=0; i<size; i++)
+            list.add(i);
+        Random random = new Random(size);
+        long start = System.nanoTime();
+        long sum = 0;
+        for(int i=0; i<OPERATIONS; i++)
+        {
+            // the same mix QueueCmd, RemoveCmd, MoveTrackCmd and SkiptoCmd produce
+            sum += list.get(random.nextInt(list.size()));
+            list.add(random.nextInt(list.size()), i);
+            list.add(list.remove(random.nextInt(list.size())));
+            list.remove(random.nextInt(list.size()));
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println(String.format("%-10s %,8d entries: %,6d ms for %d rounds (%d)", name, size, millis, OPERATIONS, sum % 10));
+    }
+}
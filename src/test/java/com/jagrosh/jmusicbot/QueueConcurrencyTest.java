@@ -0,0 +1,127 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.queue.AbstractQueue;
+import com.jagrosh.jmusicbot.queue.Queueable;
+import com.jagrosh.jmusicbot.settings.QueueType;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class QueueConcurrencyTest
+{
+    private static final int THREADS = 8;
+    private static final int OPERATIONS = 5000;
+
+    @Test
+    public void fairQueueSurvivesConcurrentAccess() throws Exception
+    {
+        hammer(QueueType.FAIR.createInstance(null));
+    }
+
+    @Test
+    public void linearQueueSurvivesConcurrentAccess() throws Exception
+    {
+        hammer(QueueType.LINEAR.createInstance(null));
+    }
+
+    private static void hammer(AbstractQueue<Q> queue) throws Exception
+    {
+        AtomicInteger sequence = new AtomicInteger();
+        ConcurrentLinkedQueue<Q> pulled = new ConcurrentLinkedQueue<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for(int t=0; t<THREADS; t++)
+        {
+            long identifier = t % 4;
+            Thread thread = new Thread(() ->
+            {
+                try
+                {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for(int i=0; i<OPERATIONS; i++)
+                    {
+                        int op = random.nextInt(10);
+                        if(op < 4)
+                            queue.add(new Q(identifier, sequence.getAndIncrement()));
+                        else if(op < 8)
+                        {
+                            synchronized(queue.getLock())
+                            {
+                                if(!queue.isEmpty())
+                                    pulled.add(queue.pull());
+                            }
+                        }
+                        else if(op == 8)
+                            queue.shuffle(identifier);
+                        else
+                            for(Q q : queue.getSnapshot())
+                                assertNotNull(q);
+                    }
+                }
+                catch(Throwable ex)
+                {
+                    failure.compareAndSet(null, ex);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for(Thread thread : threads)
+            thread.join();
+        if(failure.get() != null)
+            throw new AssertionError(failure.get());
+
+        // nothing may be lost or duplicated
+        Set<Integer> seen = new HashSet<>();
+        for(Q q : pulled)
+            assertTrue(seen.add(q.sequence));
+        for(Q q : queue.getSnapshot())
+            assertTrue(seen.add(q.sequence));
+        assertEquals(sequence.get(), seen.size());
+        assertEquals(sequence.get() - pulled.size(), queue.size());
+    }
+
+    private static class Q implements Queueable
+    {
+        private final long identifier;
+        private final int sequence;
+
+        private Q(long identifier, int sequence)
+        {
+            this.identifier = identifier;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public long getIdentifier()
+        {
+            return identifier;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.queue.TreeList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TreeListTest
+{
+    @Test
+    public void matchesArrayList()
+    {
+        Random random = new Random(42);
+        List<Integer> expected = new ArrayList<>();
+        List<Integer> actual = new TreeList<>();
+        for(int i=0; i<20000; i++)
+        {
+            int op = random.nextInt(7);
+            if(op < 3 || expected.isEmpty())
+            {
+                int index = random.nextInt(expected.size()+1);
+                expected.add(index, i);
+                actual.add(index, i);
+            }
+            else if(op == 3)
+            {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.remove(index), actual.remove(index));
+            }
+            else if(op == 4)
+            {
+                int index = random.nextInt(expected.size());
+                assertEquals(expected.set(index, -i), actual.set(index, -i));
+            }
+            else if(op == 5)
+            {
+                List<Integer> values = new ArrayList<>();
+                for(int j=random.nextInt(5); j>0; j--)
+                    values.add(i * 10 + j);
+                expected.addAll(values);
+                actual.addAll(values);
+            }
+            else
+            {
+                int from = random.nextInt(expected.size());
+                int to = Math.min(expected.size(), from + random.nextInt(4));
+                expected.subList(from, to).clear();
+                actual.subList(from, to).clear();
+            }
+            assertEquals(expected.size(), actual.size());
+        }
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void iteratorRemove()
+    {
+        List<Integer> list = new TreeList<>();
+        for(int i=0; i<100; i++)
+            list.add(i);
+        Iterator<Integer> it = list.iterator();
+        while(it.hasNext())
+            if(it.next() % 3 == 0)
+                it.remove();
+        assertEquals(66, list.size());
+        for(int i : list)
+            assertTrue(i % 3 != 0);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import com.sedmelluq.discord.lavaplayer.format.StandardAudioDataFormats;
+import com.sedmelluq.discord.lavaplayer.track.playback.AllocatingAudioFrameBuffer;
+import com.sedmelluq.discord.lavaplayer.track.playback.AudioFrameBuffer;
+import com.sedmelluq.discord.lavaplayer.track.playback.AudioFrameBufferFactory;
+import com.sedmelluq.discord.lavaplayer.track.playback.MutableAudioFrame;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measures what passing frames from a track to the send handler allocates, with the frame buffers
+ * the player manager uses and with lavaplayer's default ones.
+ * Skipped unless run with {@code -Dbenchmark=true}.
+ */
+public class FrameBufferBenchmarkTest
+{
+    private static final int BUFFERED = 100, ROUNDS = 2000;
+
+    @Test
+    public void sendingFramesAllocatesNothing() throws InterruptedException
+    {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+
+        double allocating = bytesPerFrame(threads, AllocatingAudioFrameBuffer::new);
+        double reused = bytesPerFrame(threads, PlayerManager.FRAME_BUFFERS);
+        System.out.println(String.format("allocating %.1f bytes/frame, player manager %.1f bytes/frame", allocating, reused));
+        assertTrue(String.valueOf(reused), reused < 1);
+    }
+
+    private static double bytesPerFrame(com.sun.management.ThreadMXBean threads, AudioFrameBufferFactory factory) throws InterruptedException
+    {
+        AudioFrameBuffer buffer = factory.create(5000, StandardAudioDataFormats.DISCORD_OPUS, new AtomicBoolean());
+        // what the track's encoder offers, one reused frame
+        MutableAudioFrame offered = new MutableAudioFrame();
+        offered.setBuffer(ByteBuffer.allocate(StandardAudioDataFormats.DISCORD_OPUS.maximumChunkSize()));
+        offered.setFormat(StandardAudioDataFormats.DISCORD_OPUS);
+        offered.setVolume(100);
+        byte[] opus = new byte[120];
+        // what AudioHandler reads each frame into
+        ByteBuffer send = ByteBuffer.allocateDirect(StandardAudioDataFormats.DISCORD_OPUS.maximumChunkSize());
+        MutableAudioFrame frame = new MutableAudioFrame();
+        frame.setBuffer(send);
+
+        long sent = 0, start = 0;
+        for(int round = 0; round < ROUNDS * 2; round++)
+        {
+            // the first half warms up
+            if(round == ROUNDS)
+            {
+                start = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+                sent = 0;
+            }
+            for(int i = 0; i < BUFFERED; i++)
+            {
+                offered.setTimecode((round * BUFFERED + i) * 20L);
+                offered.store(opus, 0, opus.length);
+                buffer.consume(offered);
+            }
+            while(buffer.provide(frame))
+            {
+                sent += send.flip().remaining();
+                send.clear();
+            }
+        }
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - start;
+        assertEquals((long) ROUNDS * BUFFERED * opus.length, sent);
+        return (double) allocated / (ROUNDS * BUFFERED);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RecentTracksTest
+{
+    @Test
+    public void indexesUnderEveryKey()
+    {
+        RecentTracks recent = new RecentTracks(10_000);
+        byte[] track = new byte[100];
+        recent.put(track, "https://youtu.be/abc", null, "abc");
+        assertSame(track, recent.get("https://youtu.be/abc"));
+        assertSame(track, recent.get("abc"));
+        assertEquals(2, recent.size());
+        recent.remove("abc");
+        assertNull(recent.get("abc"));
+        assertEquals(1, recent.size());
+    }
+
+    @Test
+    public void evictsBySize()
+    {
+        RecentTracks recent = new RecentTracks(1000);
+        for(int i=0; i<10; i++)
+        {
+            recent.put(new byte[190], "k" + i);
+            // keep the first track in use
+            assertNotNull(recent.get("k0"));
+        }
+        assertTrue(recent.bytes() <= 1000);
+        assertNotNull(recent.get("k0"));
+        assertNotNull(recent.get("k9"));
+        assertNull(recent.get("k1"));
+    }
+
+    @Test
+    public void replacingKeepsCount()
+    {
+        RecentTracks recent = new RecentTracks(1000);
+        recent.put(new byte[100], "a");
+        recent.put(new byte[50], "a");
+        assertEquals(52, recent.bytes());
+        recent.remove("a");
+        assertEquals(0, recent.bytes());
+    }
+}
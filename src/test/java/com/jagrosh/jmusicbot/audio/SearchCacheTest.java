@@ -0,0 +1,67 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SearchCacheTest
+{
+    @Test
+    public void normalizesSearches()
+    {
+        assertEquals("ytsearch:never gonna give you up", SearchCache.key("ytsearch:  Never Gonna\tgive  you UP "));
+        assertEquals("scsearch:lofi", SearchCache.key("SCSEARCH:lofi"));
+        assertNull(SearchCache.key("https://youtu.be/dQw4w9WgXcQ"));
+        assertNull(SearchCache.key("ytsearch:   "));
+        assertNull(SearchCache.key(null));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed()
+    {
+        SearchCache<String> cache = new SearchCache<>(2, 1000, () -> 0);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        assertEquals("1", cache.get("a"));
+        cache.put("c", "3");
+        assertNull(cache.get("b"));
+        assertEquals("1", cache.get("a"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(2, cache.size());
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void expires()
+    {
+        AtomicLong now = new AtomicLong();
+        SearchCache<String> cache = new SearchCache<>(10, 1000, now::get);
+        cache.put("a", "1");
+        now.set(600);
+        // storing a result that is still valid doesn't extend it
+        cache.put("a", "2");
+        assertEquals("1", cache.get("a"));
+        now.set(1000);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+        cache.put("a", "2");
+        assertEquals("2", cache.get("a"));
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.player.DefaultAudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.source.AudioSourceManager;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.track.AudioItem;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioReference;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import com.sedmelluq.discord.lavaplayer.track.BaseAudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.playback.LocalAudioTrackExecutor;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SingleFlightSourceManagerTest
+{
+    private final SingleFlightSourceManager flights = new SingleFlightSourceManager(200);
+    private final StubSourceManager source = new StubSourceManager();
+    private final DefaultAudioPlayerManager manager = new DefaultAudioPlayerManager();
+    // stands in for lavaplayer's loader pool, which only adds threads once loads are queued
+    private final ExecutorService loaders = Executors.newCachedThreadPool();
+
+    {
+        manager.registerSourceManager(flights);
+        manager.registerSourceManager(source);
+    }
+
+    @After
+    public void shutdown()
+    {
+        source.release.countDown();
+        loaders.shutdownNow();
+        manager.shutdown();
+    }
+
+    @Test
+    public void mergesLoadsOfTheSameIdentifier() throws Exception
+    {
+        Result first = load("a");
+        source.awaitEntered("a");
+        Result second = load("a");
+        // the second load is parked instead of holding a loader thread until the first finishes
+        second.loaded.get(1, TimeUnit.SECONDS);
+        assertFalse(second.answer.isDone());
+
+        source.release.countDown();
+        assertTrue(first.get() instanceof AudioTrack);
+        assertTrue(second.get() instanceof AudioTrack);
+        assertEquals(1, source.calls("a"));
+        assertEquals(1, flights.getMerged());
+        awaitNoFlights();
+    }
+
+    @Test
+    public void answersEveryMergedLoadWithItsOwnClone() throws Exception
+    {
+        List<Result> results = new ArrayList<>();
+        results.add(load("a"));
+        source.awaitEntered("a");
+        for(int i = 0; i < 4; i++)
+            results.add(load("a"));
+        for(Result result : results.subList(1, results.size()))
+            result.loaded.get(1, TimeUnit.SECONDS);
+
+        source.release.countDown();
+        List<Object> tracks = new ArrayList<>();
+        for(Result result : results)
+        {
+            Object track = result.get();
+            assertTrue(track instanceof AudioTrack);
+            assertEquals("a", ((AudioTrack) track).getIdentifier());
+            for(Object other : tracks)
+                assertNotSame(other, track);
+            tracks.add(track);
+        }
+        assertEquals(1, source.calls("a"));
+        assertEquals(4, flights.getMerged());
+        awaitNoFlights();
+    }
+
+    @Test
+    public void loadsSeparatelyOnceAFlightHasLanded() throws Exception
+    {
+        source.release.countDown();
+        assertTrue(load("a").get() instanceof AudioTrack);
+        awaitNoFlights();
+        assertTrue(load("a").get() instanceof AudioTrack);
+        assertEquals(2, source.calls("a"));
+        assertEquals(0, flights.getMerged());
+    }
+
+    @Test
+    public void finishesEveryFlightClaimedThroughARedirect() throws Exception
+    {
+        // requested before the redirect reaches it, so the redirected load claims it
+        Result direct = join("a");
+        Result redirected = load("redirect:a");
+        source.awaitEntered("a");
+        run(direct);
+        Result again = load("redirect:a");
+        direct.loaded.get(1, TimeUnit.SECONDS);
+        again.loaded.get(1, TimeUnit.SECONDS);
+
+        source.release.countDown();
+        assertTrue(redirected.get() instanceof AudioTrack);
+        assertTrue(direct.get() instanceof AudioTrack);
+        assertTrue(again.get() instanceof AudioTrack);
+        assertEquals(1, source.calls("redirect:a"));
+        assertEquals(1, source.calls("a"));
+        assertEquals(2, flights.getMerged());
+        awaitNoFlights();
+    }
+
+    @Test
+    public void passesOnEmptyResultsAndFailures() throws Exception
+    {
+        source.release.countDown();
+        assertNull(load("none").get());
+        assertTrue(load("fail").get() instanceof FriendlyException);
+        awaitNoFlights();
+    }
+
+    @Test
+    public void failsParkedLoadsThatWaitTooLong() throws Exception
+    {
+        Result first = load("a");
+        source.awaitEntered("a");
+        Result second = load("a");
+
+        Object answer = second.answer.get(2, TimeUnit.SECONDS);
+        assertTrue(answer instanceof FriendlyException);
+        assertFalse(first.answer.isDone());
+
+        source.release.countDown();
+        assertTrue(first.get() instanceof AudioTrack);
+        awaitNoFlights();
+    }
+
+    private Result load(String identifier)
+    {
+        return run(join(identifier));
+    }
+
+    private Result join(String identifier)
+    {
+        Result result = new Result(identifier);
+        result.handler = flights.handle(identifier, result);
+        return result;
+    }
+
+    private Result run(Result result)
+    {
+        result.loaded = loaders.submit(() -> manager.loadItemSync(new AudioReference(result.identifier, null), result.handler));
+        return result;
+    }
+
+    private void awaitNoFlights() throws InterruptedException
+    {
+        // loads leave their flight just after being answered
+        for(int i = 0; i < 100 && flights.getFlights() > 0; i++)
+            Thread.sleep(10);
+        assertEquals(0, flights.getFlights());
+    }
+
+    private static class Result implements AudioLoadResultHandler
+    {
+        private final CompletableFuture<Object> answer = new CompletableFuture<>();
+        private final String identifier;
+        private AudioLoadResultHandler handler;
+        private Future<?> loaded;
+
+        private Result(String identifier)
+        {
+            this.identifier = identifier;
+        }
+
+        private Object get() throws Exception
+        {
+            return answer.get(2, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void trackLoaded(AudioTrack track)
+        {
+            answer.complete(track);
+        }
+
+        @Override
+        public void playlistLoaded(AudioPlaylist playlist)
+        {
+            answer.complete(playlist);
+        }
+
+        @Override
+        public void noMatches()
+        {
+            answer.complete(null);
+        }
+
+        @Override
+        public void loadFailed(FriendlyException exception)
+        {
+            answer.complete(exception);
+        }
+    }
+
+    private static class StubSourceManager implements AudioSourceManager
+    {
+        private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        private final Map<String, CountDownLatch> entered = new ConcurrentHashMap<>();
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private int calls(String identifier)
+        {
+            return calls.getOrDefault(identifier, new AtomicInteger()).get();
+        }
+
+        private void awaitEntered(String identifier) throws InterruptedException
+        {
+            assertTrue(entered.computeIfAbsent(identifier, key -> new CountDownLatch(1)).await(1, TimeUnit.SECONDS));
+        }
+
+        @Override
+        public String getSourceName()
+        {
+            return "stub";
+        }
+
+        @Override
+        public AudioItem loadItem(AudioPlayerManager manager, AudioReference reference)
+        {
+            String identifier = reference.identifier;
+            calls.computeIfAbsent(identifier, key -> new AtomicInteger()).incrementAndGet();
+            if(identifier.startsWith("redirect:"))
+                return new AudioReference(identifier.substring("redirect:".length()), null);
+            entered.computeIfAbsent(identifier, key -> new CountDownLatch(1)).countDown();
+            try
+            {
+                release.await(2, TimeUnit.SECONDS);
+            }
+            catch(InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+            }
+            if(identifier.equals("none"))
+                return null;
+            if(identifier.equals("fail"))
+                throw new FriendlyException("Broken.", FriendlyException.Severity.COMMON, null);
+            return new StubTrack(new AudioTrackInfo(identifier, "author", 1000, identifier, false, null));
+        }
+
+        @Override
+        public boolean isTrackEncodable(AudioTrack track)
+        {
+            return false;
+        }
+
+        @Override
+        public void encodeTrack(AudioTrack track, DataOutput output) {}
+
+        @Override
+        public AudioTrack decodeTrack(AudioTrackInfo trackInfo, DataInput input)
+        {
+            return null;
+        }
+
+        @Override
+        public void shutdown() {}
+    }
+
+    private static class StubTrack extends BaseAudioTrack
+    {
+        private StubTrack(AudioTrackInfo trackInfo)
+        {
+            super(trackInfo);
+        }
+
+        @Override
+        public void process(LocalAudioTrackExecutor executor) {}
+
+        @Override
+        protected AudioTrack makeShallowClone()
+        {
+            return new StubTrack(trackInfo);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.metrics;
+
+import com.jagrosh.jdautilities.commons.utils.LatencyHistogram;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MetricsRegistryTest
+{
+    @Test
+    public void writesCountersAndGauges()
+    {
+        MetricsRegistry registry = new MetricsRegistry();
+        LongAdder edits = registry.counter("edits_total", "Edits");
+        MetricsRegistry.Labelled<LongAdder> failures = registry.counter("failures_total", "Failures", "source");
+        registry.gauge("queued", "Queued tracks", () -> 7);
+        edits.add(3);
+        failures.labels("youtube").increment();
+        failures.labels("soundcloud").add(2);
+        failures.labels("say \"hi\"").increment();
+
+        String text = registry.scrape();
+        assertTrue(text, text.contains("# HELP edits_total Edits\n# TYPE edits_total counter\nedits_total 3\n"));
+        assertTrue(text, text.contains("failures_total{source=\"soundcloud\"} 2\nfailures_total{source=\"youtube\"} 1\n"));
+        assertTrue(text, text.contains("failures_total{source=\"say \\\"hi\\\"\"} 1\n"));
+        assertTrue(text, text.contains("# TYPE queued gauge\nqueued 7\n"));
+    }
+
+    @Test
+    public void writesCumulativeBucketsInSeconds()
+    {
+        MetricsRegistry registry = new MetricsRegistry();
+        LatencyHistogram histogram = registry.histogram("load_seconds", "Loads");
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(500));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(3));
+        histogram.record(TimeUnit.HOURS.toNanos(1));
+
+        String text = registry.scrape();
+        assertTrue(text, text.contains("load_seconds_bucket{le=\"0.001\"} 1\n"));
+        assertTrue(text, text.contains("load_seconds_bucket{le=\"0.004\"} 2\n"));
+        assertTrue(text, text.contains("load_seconds_bucket{le=\"32.768\"} 2\n"));
+        assertTrue(text, text.contains("load_seconds_bucket{le=\"+Inf\"} 3\n"));
+        assertTrue(text, text.contains("load_seconds_count 3\n"));
+        assertTrue(text, text.contains("load_seconds_sum 3600.0035\n"));
+    }
+
+    @Test
+    public void readsHistogramsKeptElsewhere()
+    {
+        MetricsRegistry registry = new MetricsRegistry();
+        LatencyHistogram play = new LatencyHistogram();
+        play.record(TimeUnit.MILLISECONDS.toNanos(2));
+        registry.histogram("command_seconds", "Commands", "command", () -> Collections.singletonMap("play", play));
+
+        String text = registry.scrape();
+        assertTrue(text, text.contains("command_seconds_bucket{command=\"play\",le=\"0.004\"} 1\n"));
+        assertTrue(text, text.contains("command_seconds_count{command=\"play\"} 1\n"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsDuplicateNames()
+    {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("edits_total", "Edits");
+        registry.gauge("edits_total", "Edits", () -> 0);
+    }
+
+    @Test
+    public void servesScrapesOverHttp() throws Exception
+    {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("edits_total", "Edits").increment();
+        MetricsServer server = MetricsServer.start(registry, "127.0.0.1", 0);
+        try
+        {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + "/metrics").openConnection();
+            assertEquals(200, connection.getResponseCode());
+            assertTrue(connection.getContentType().startsWith("text/plain"));
+            try(InputStream in = connection.getInputStream())
+            {
+                assertEquals(registry.scrape(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        finally
+        {
+            server.stop();
+        }
+    }
+}
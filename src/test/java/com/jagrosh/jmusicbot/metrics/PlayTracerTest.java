@@ -0,0 +1,133 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.metrics;
+
+import com.jagrosh.jmusicbot.metrics.PlayTracer.Stage;
+import com.jagrosh.jmusicbot.metrics.PlayTracer.Trace;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PlayTracerTest
+{
+    private final AtomicLong now = new AtomicLong();
+    private final PlayTracer tracer = new PlayTracer(now::get);
+
+    @Test
+    public void recordsEachStageSinceTheOneBefore()
+    {
+        tracer.begin(1);
+        advance(5);
+        tracer.mark(1, Stage.CONNECT);
+        advance(100);
+        tracer.mark(1, Stage.REPLY);
+        advance(300);
+        tracer.mark(1, Stage.LOAD);
+        advance(1);
+        tracer.mark(1, Stage.QUEUE);
+        advance(700);
+        tracer.finish(1);
+
+        assertEquals(1, tracer.getStage(Stage.REPLY).getCount());
+        assertEquals(128, tracer.getStage(Stage.REPLY).getPercentile(50));
+        assertEquals(1024, tracer.getStage(Stage.FIRST_FRAME).getPercentile(50));
+        assertEquals(2048, tracer.getTotal().getPercentile(50));
+
+        Trace trace = tracer.getRecent().get(0);
+        assertEquals(1, trace.getId());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(300), trace.getNanos(Stage.LOAD));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1106), trace.getTotalNanos());
+        assertEquals(0, tracer.getInFlight());
+    }
+
+    @Test
+    public void ignoresRequestsThatArentTraced()
+    {
+        tracer.mark(2, Stage.LOAD);
+        tracer.finish(2);
+        tracer.discard(2);
+        assertEquals(0, tracer.getStage(Stage.LOAD).getCount());
+        assertEquals(0, tracer.getTotal().getCount());
+        assertEquals(0, tracer.getAbandoned());
+        assertTrue(tracer.getRecent().isEmpty());
+    }
+
+    @Test
+    public void keepsFinishedStagesOfDiscardedRequests()
+    {
+        tracer.begin(3);
+        advance(10);
+        tracer.mark(3, Stage.CONNECT);
+        tracer.discard(3);
+        tracer.mark(3, Stage.REPLY);
+
+        assertEquals(1, tracer.getStage(Stage.CONNECT).getCount());
+        assertEquals(0, tracer.getStage(Stage.REPLY).getCount());
+        assertEquals(1, tracer.getAbandoned());
+        assertEquals(0, tracer.getTotal().getCount());
+    }
+
+    @Test
+    public void sweepsRequestsLeftWaiting()
+    {
+        tracer.begin(4);
+        advance(60_000);
+        tracer.begin(5);
+        advance(61_000);
+        tracer.sweep();
+
+        assertEquals(1, tracer.getInFlight());
+        assertEquals(1, tracer.getAbandoned());
+        tracer.finish(5);
+        assertEquals(1, tracer.getTotal().getCount());
+    }
+
+    @Test
+    public void listsRecentTracesNewestFirst()
+    {
+        for(long id = 1; id <= 25; id++)
+        {
+            tracer.begin(id);
+            tracer.finish(id);
+        }
+        assertEquals(20, tracer.getRecent().size());
+        assertEquals(25, tracer.getRecent().get(0).getId());
+        assertEquals(6, tracer.getRecent().get(19).getId());
+    }
+
+    @Test
+    public void exposesStagesThroughTheRegistry()
+    {
+        MetricsRegistry registry = new MetricsRegistry();
+        tracer.register(registry);
+        tracer.begin(6);
+        advance(3);
+        tracer.finish(6);
+
+        String text = registry.scrape();
+        assertTrue(text, text.contains("jmusicbot_play_stage_seconds_count{stage=\"first_frame\"} 1\n"));
+        assertTrue(text, text.contains("jmusicbot_play_stage_seconds_count{stage=\"load\"} 0\n"));
+        assertTrue(text, text.contains("jmusicbot_play_first_audio_seconds_count 1\n"));
+        assertTrue(text, text.contains("jmusicbot_play_traces_abandoned_total 0\n"));
+    }
+
+    private void advance(long millis)
+    {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
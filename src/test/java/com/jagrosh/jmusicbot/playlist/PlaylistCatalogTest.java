@@ -0,0 +1,145 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.playlist;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PlaylistCatalogTest
+{
+    @Test
+    public void parsesOnce() throws IOException
+    {
+        Path folder = Files.createTempDirectory("playlists");
+        PlaylistCatalog catalog = new PlaylistCatalog(folder);
+        try
+        {
+            write(folder, "mix", "#shuffle\n\nfirst\n// comment\n  second  \n");
+            assertEquals(Arrays.asList("mix"), catalog.names());
+            PlaylistCatalog.Entry entry = catalog.get("mix");
+            assertEquals(Arrays.asList("first", "second"), entry.items);
+            assertTrue(entry.shuffle);
+            assertSame(entry, catalog.get("mix"));
+            assertNull(catalog.get("other"));
+        }
+        finally
+        {
+            catalog.close();
+            delete(folder);
+        }
+    }
+
+    @Test
+    public void picksUpChangesOnDisk() throws Exception
+    {
+        Path folder = Files.createTempDirectory("playlists");
+        PlaylistCatalog catalog = new PlaylistCatalog(folder);
+        try
+        {
+            write(folder, "mix", "first\n");
+            assertEquals(Arrays.asList("first"), catalog.get("mix").items);
+            write(folder, "mix", "first\nsecond\n");
+            assertTrue(eventually(() -> catalog.get("mix").items.size() == 2));
+            write(folder, "new", "third\n");
+            assertTrue(eventually(() -> catalog.get("new") != null));
+            Files.delete(folder.resolve("mix.txt"));
+            assertTrue(eventually(() -> !catalog.names().contains("mix")));
+            assertNull(catalog.get("mix"));
+        }
+        finally
+        {
+            catalog.close();
+            delete(folder);
+        }
+    }
+
+    @Test
+    public void invalidatesOwnChanges() throws IOException
+    {
+        Path folder = Files.createTempDirectory("playlists");
+        PlaylistCatalog catalog = new PlaylistCatalog(folder);
+        try
+        {
+            assertTrue(catalog.names().isEmpty());
+            write(folder, "mix", "first\n");
+            catalog.invalidate("mix", true);
+            assertEquals(Arrays.asList("first"), catalog.get("mix").items);
+            write(folder, "mix", "second\n");
+            catalog.invalidate("mix", false);
+            assertEquals(Arrays.asList("second"), catalog.get("mix").items);
+        }
+        finally
+        {
+            catalog.close();
+            delete(folder);
+        }
+    }
+
+    @Test
+    public void missingFolder() throws IOException
+    {
+        Path folder = Files.createTempDirectory("playlists");
+        Files.delete(folder);
+        PlaylistCatalog catalog = new PlaylistCatalog(folder);
+        assertNull(catalog.names());
+        assertNull(catalog.get("mix"));
+        Files.createDirectory(folder);
+        try
+        {
+            write(folder, "mix", "first\n");
+            assertEquals(Arrays.asList("mix"), catalog.names());
+        }
+        finally
+        {
+            catalog.close();
+            delete(folder);
+        }
+    }
+
+    private static void write(Path folder, String name, String text) throws IOException
+    {
+        Files.write(folder.resolve(name + ".txt"), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean eventually(BooleanSupplier condition) throws InterruptedException
+    {
+        // some platforms poll for changes rather than being told about them
+        for(int i=0; i<300; i++)
+        {
+            if(condition.getAsBoolean())
+                return true;
+            Thread.sleep(50);
+        }
+        return false;
+    }
+
+    private static void delete(Path folder) throws IOException
+    {
+        try(Stream<Path> files = Files.walk(folder))
+        {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
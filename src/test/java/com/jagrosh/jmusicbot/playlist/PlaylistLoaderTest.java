@@ -0,0 +1,232 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.playlist;
+
+import com.jagrosh.jmusicbot.BotConfig;
+import com.jagrosh.jmusicbot.utils.TaskPool;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.player.DefaultAudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.source.AudioSourceManager;
+import com.sedmelluq.discord.lavaplayer.track.AudioItem;
+import com.sedmelluq.discord.lavaplayer.track.AudioReference;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import com.sedmelluq.discord.lavaplayer.track.BaseAudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.playback.LocalAudioTrackExecutor;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class PlaylistLoaderTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final StubSourceManager source = new StubSourceManager();
+    private final DefaultAudioPlayerManager manager = new DefaultAudioPlayerManager();
+    private final TaskPool pool = new TaskPool("test", 2);
+
+    {
+        manager.registerSourceManager(source);
+    }
+
+    @After
+    public void shutdown()
+    {
+        pool.shutdownNow();
+        manager.shutdown();
+    }
+
+    @Test
+    public void handsOverInPlaylistOrder() throws Exception
+    {
+        PlaylistLoader loader = loader(0);
+        loader.writePlaylist("mix", items(60));
+        List<String> handed = load(loader.getPlaylist("mix"));
+        assertEquals(expected(60), handed);
+        loader.shutdown();
+    }
+
+    @Test
+    public void handsOverCachedItemsInPlaylistOrder() throws Exception
+    {
+        PlaylistLoader loader = loader(TimeUnit.DAYS.toMillis(1));
+        loader.writePlaylist("mix", items(60));
+        assertEquals(expected(60), load(loader.getPlaylist("mix")));
+        int calls = source.calls.get();
+
+        assertEquals(expected(60), load(loader.getPlaylist("mix")));
+        // only the items that failed are looked up again
+        assertEquals(calls + 6, source.calls.get());
+        loader.shutdown();
+    }
+
+    private List<String> load(PlaylistLoader.Playlist playlist) throws InterruptedException
+    {
+        List<String> handed = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicInteger callbacks = new AtomicInteger();
+        playlist.loadTracks(manager, tracks ->
+        {
+            // nothing is published until the callback
+            assertTrue(playlist.getTracks().isEmpty());
+            tracks.forEach(track -> handed.add(track.getIdentifier()));
+        }, () ->
+        {
+            callbacks.incrementAndGet();
+            done.countDown();
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, callbacks.get());
+        assertEquals(60, playlist.getProcessed());
+        List<String> identifiers = new ArrayList<>();
+        playlist.getTracks().forEach(track -> identifiers.add(track.getIdentifier()));
+        assertEquals(handed, identifiers);
+        assertEquals(6, playlist.getErrors().size());
+        for(int i = 0; i < 6; i++)
+            assertEquals(i * 10 + 9, playlist.getErrors().get(i).getIndex());
+        return handed;
+    }
+
+    private PlaylistLoader loader(long cacheTime)
+    {
+        String path = folder.getRoot().getAbsolutePath();
+        BotConfig config = new BotConfig(null)
+        {
+            @Override
+            public String getPlaylistsFolder()
+            {
+                return path;
+            }
+
+            @Override
+            public int getPlaylistConcurrency()
+            {
+                return 4;
+            }
+
+            @Override
+            public long getPlaylistCacheTime()
+            {
+                return cacheTime;
+            }
+        };
+        return new PlaylistLoader(config, pool);
+    }
+
+    // every tenth item finds nothing
+    private static String items(int count)
+    {
+        StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < count; i++)
+            builder.append(i % 10 == 9 ? "none" : "item").append(i).append('\n');
+        return builder.toString();
+    }
+
+    private static List<String> expected(int count)
+    {
+        List<String> expected = new ArrayList<>();
+        for(int i = 0; i < count; i++)
+            if(i % 10 != 9)
+                expected.add("item" + i);
+        return expected;
+    }
+
+    private static class StubSourceManager implements AudioSourceManager
+    {
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public String getSourceName()
+        {
+            return "stub";
+        }
+
+        @Override
+        public AudioItem loadItem(AudioPlayerManager manager, AudioReference reference)
+        {
+            calls.incrementAndGet();
+            try
+            {
+                // so items finish out of order
+                Thread.sleep(ThreadLocalRandom.current().nextInt(5));
+            }
+            catch(InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+            }
+            if(reference.identifier.startsWith("none"))
+                return null;
+            return new StubTrack(this, new AudioTrackInfo(reference.identifier, "author", 1000, reference.identifier, false, null));
+        }
+
+        @Override
+        public boolean isTrackEncodable(AudioTrack track)
+        {
+            return true;
+        }
+
+        @Override
+        public void encodeTrack(AudioTrack track, DataOutput output) {}
+
+        @Override
+        public AudioTrack decodeTrack(AudioTrackInfo trackInfo, DataInput input)
+        {
+            return new StubTrack(this, trackInfo);
+        }
+
+        @Override
+        public void shutdown() {}
+    }
+
+    private static class StubTrack extends BaseAudioTrack
+    {
+        private final StubSourceManager source;
+
+        private StubTrack(StubSourceManager source, AudioTrackInfo trackInfo)
+        {
+            super(trackInfo);
+            this.source = source;
+        }
+
+        @Override
+        public void process(LocalAudioTrackExecutor executor) {}
+
+        @Override
+        public AudioSourceManager getSourceManager()
+        {
+            return source;
+        }
+
+        @Override
+        protected AudioTrack makeShallowClone()
+        {
+            return new StubTrack(source, trackInfo);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.playlist;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.player.DefaultAudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.source.AudioSourceManager;
+import com.sedmelluq.discord.lavaplayer.track.AudioItem;
+import com.sedmelluq.discord.lavaplayer.track.AudioReference;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import com.sedmelluq.discord.lavaplayer.track.BaseAudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.playback.LocalAudioTrackExecutor;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class TrackCacheTest
+{
+    private static final long MODIFIED = 1_700_000_000_000L, DAY = TimeUnit.DAYS.toMillis(1);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final DefaultAudioPlayerManager manager = new DefaultAudioPlayerManager();
+
+    {
+        manager.registerSourceManager(new StubSourceManager());
+    }
+
+    @After
+    public void shutdown()
+    {
+        manager.shutdown();
+    }
+
+    @Test
+    public void roundTripsThroughTheManager()
+    {
+        Path file = cacheFile();
+        TrackCache cache = TrackCache.load(file, MODIFIED, DAY, manager);
+        assertNull(cache.get("song"));
+        cache.put("song", Collections.singletonList(track("a")));
+        cache.put("album", Arrays.asList(track("b"), track("c")));
+        assertTrue(cache.save());
+
+        TrackCache loaded = TrackCache.load(file, MODIFIED, DAY, manager);
+        assertEquals(Arrays.asList("a"), identifiers(loaded.get("song")));
+        assertEquals(Arrays.asList("b", "c"), identifiers(loaded.get("album")));
+        // each get decodes new tracks, as each one may be played separately
+        assertNotSame(loaded.get("song").get(0), loaded.get("song").get(0));
+        assertNull(loaded.get("other"));
+    }
+
+    @Test
+    public void dropsEntriesPastTheirTimeToLive() throws InterruptedException
+    {
+        Path file = cacheFile();
+        TrackCache cache = TrackCache.load(file, MODIFIED, DAY, manager);
+        cache.put("song", Collections.singletonList(track("a")));
+        assertTrue(cache.save());
+
+        Thread.sleep(5);
+        assertNull(TrackCache.load(file, MODIFIED, 1, manager).get("song"));
+        TrackCache kept = TrackCache.load(file, MODIFIED, DAY, manager);
+        assertNotNull(kept.get("song"));
+    }
+
+    @Test
+    public void discardsTheCacheOnceThePlaylistChanges()
+    {
+        Path file = cacheFile();
+        TrackCache cache = TrackCache.load(file, MODIFIED, DAY, manager);
+        cache.put("song", Collections.singletonList(track("a")));
+        assertTrue(cache.save());
+
+        assertNull(TrackCache.load(file, MODIFIED + 1, DAY, manager).get("song"));
+    }
+
+    @Test
+    public void savesFromSeveralLoadersAtOnce() throws Exception
+    {
+        Path file = cacheFile();
+        int loaders = 8;
+        CountDownLatch start = new CountDownLatch(1), done = new CountDownLatch(loaders);
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        for(int t = 0; t < loaders; t++)
+        {
+            String line = "song" + t;
+            new Thread(() ->
+            {
+                try
+                {
+                    start.await();
+                    for(int i = 0; i < 50; i++)
+                    {
+                        TrackCache cache = TrackCache.load(file, MODIFIED, DAY, manager);
+                        cache.put(line, Collections.singletonList(track(line)));
+                        assertTrue(cache.save());
+                    }
+                }
+                catch(Throwable ex)
+                {
+                    failures.add(ex);
+                }
+                done.countDown();
+            }).start();
+        }
+        start.countDown();
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertEquals(Collections.emptyList(), failures);
+
+        // whichever save landed last, the file is whole and holds that loader's line
+        TrackCache loaded = TrackCache.load(file, MODIFIED, DAY, manager);
+        int found = 0;
+        for(int t = 0; t < loaders; t++)
+            if(loaded.get("song" + t) != null)
+                found++;
+        assertTrue(found > 0);
+        try(Stream<Path> files = Files.list(file.getParent()))
+        {
+            assertEquals(1, files.count());
+        }
+    }
+
+    private Path cacheFile()
+    {
+        return folder.getRoot().toPath().resolve(".cache").resolve("mix.tracks");
+    }
+
+    private static AudioTrack track(String identifier)
+    {
+        return new StubTrack(new AudioTrackInfo(identifier, "author", 1000, identifier, false, "https://example.com/" + identifier));
+    }
+
+    private static List<String> identifiers(List<AudioTrack> tracks)
+    {
+        List<String> identifiers = new ArrayList<>();
+        for(AudioTrack track : tracks)
+            identifiers.add(track.getIdentifier());
+        return identifiers;
+    }
+
+    private static class StubSourceManager implements AudioSourceManager
+    {
+        @Override
+        public String getSourceName()
+        {
+            return "stub";
+        }
+
+        @Override
+        public AudioItem loadItem(AudioPlayerManager manager, AudioReference reference)
+        {
+            return null;
+        }
+
+        @Override
+        public boolean isTrackEncodable(AudioTrack track)
+        {
+            return true;
+        }
+
+        @Override
+        public void encodeTrack(AudioTrack track, DataOutput output) {}
+
+        @Override
+        public AudioTrack decodeTrack(AudioTrackInfo trackInfo, DataInput input)
+        {
+            return new StubTrack(trackInfo);
+        }
+
+        @Override
+        public void shutdown() {}
+    }
+
+    private static class StubTrack extends BaseAudioTrack
+    {
+        private StubTrack(AudioTrackInfo trackInfo)
+        {
+            super(trackInfo);
+        }
+
+        @Override
+        public void process(LocalAudioTrackExecutor executor) {}
+
+        @Override
+        public AudioSourceManager getSourceManager()
+        {
+            return new StubSourceManager();
+        }
+
+        @Override
+        protected AudioTrack makeShallowClone()
+        {
+            return new StubTrack(trackInfo);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.settings;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SettingsIndexTest
+{
+    private static final String FIRST = "{\n        \"prefix\": \"}{\\\"\",\n        \"volume\": 50\n    }";
+    private static final String SECOND = "{\"default_playlist\": \"müsica [1]\"}";
+
+    @Test
+    public void indexesLegacySnapshot() throws IOException
+    {
+        // the pretty-printed layout older versions wrote
+        Path file = Files.createTempFile("settings", ".json");
+        try
+        {
+            Files.write(file, ("{\n    \"111\": " + FIRST + ",\n    \"222\": " + SECOND + ",\n    \"333\": {}\n}")
+                    .getBytes(StandardCharsets.UTF_8));
+            SettingsIndex index = SettingsIndex.build(file);
+            assertEquals(3, index.size());
+            assertEquals(FIRST, index.read(file, 111));
+            assertEquals(SECOND, index.read(file, 222));
+            assertEquals("{}", index.read(file, 333));
+            assertNull(index.read(file, 444));
+            long[] ids = index.ids();
+            Arrays.sort(ids);
+            assertArrayEquals(new long[]{111, 222, 333}, ids);
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void writesSnapshotItCanIndex() throws IOException
+    {
+        Path file = Files.createTempFile("settings", ".json");
+        try
+        {
+            SettingsIndex.Builder builder = new SettingsIndex.Builder();
+            for(long id=1; id<=500; id++)
+                builder.write(id * 1_000_003, id % 2 == 0 ? FIRST : SECOND);
+            Files.write(file, builder.toBytes());
+            SettingsIndex written = builder.build();
+            SettingsIndex scanned = SettingsIndex.build(file);
+            assertEquals(500, scanned.size());
+            for(long id=1; id<=500; id++)
+            {
+                String expected = id % 2 == 0 ? FIRST : SECOND;
+                assertEquals(expected, written.read(file, id * 1_000_003));
+                assertEquals(expected, scanned.read(file, id * 1_000_003));
+            }
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void emptySnapshot() throws IOException
+    {
+        Path file = Files.createTempFile("settings", ".json");
+        try
+        {
+            Files.write(file, new SettingsIndex.Builder().toBytes());
+            assertEquals(0, SettingsIndex.build(file).size());
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedSnapshot() throws IOException
+    {
+        Path file = Files.createTempFile("settings", ".json");
+        try
+        {
+            Files.write(file, ("{\n    \"111\": " + FIRST).getBytes(StandardCharsets.UTF_8));
+            SettingsIndex.build(file);
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+    }
+}
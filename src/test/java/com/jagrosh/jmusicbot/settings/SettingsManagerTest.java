@@ -0,0 +1,135 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.settings;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class SettingsManagerTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replaysTheJournalWhenReopened() throws IOException
+    {
+        Path dir = folder.getRoot().toPath();
+        SettingsManager manager = new SettingsManager(false, dir);
+        manager.getSettings(1).setVolume(40);
+        manager.getSettings(1).setPrefix("!!");
+        manager.getSettings(2).setRepeatMode(RepeatMode.SINGLE);
+        manager.shutdown();
+        assertEquals(0, manager.getPendingWrites());
+        assertEquals(2, Files.readAllLines(journal(dir)).size());
+
+        for(boolean lazy : new boolean[]{false, true})
+        {
+            SettingsManager reopened = new SettingsManager(lazy, dir);
+            assertEquals(40, reopened.getSettings(1).getVolume());
+            assertEquals("!!", reopened.getSettings(1).getPrefix());
+            assertEquals(RepeatMode.SINGLE, reopened.getSettings(2).getRepeatMode());
+            assertEquals(100, reopened.getSettings(3).getVolume());
+            reopened.shutdown();
+        }
+    }
+
+    @Test
+    public void skipsATruncatedFinalRecord() throws IOException
+    {
+        Path dir = folder.getRoot().toPath();
+        SettingsManager manager = new SettingsManager(false, dir);
+        manager.getSettings(1).setVolume(40);
+        manager.shutdown();
+        // a crash while the next record was being appended
+        Files.write(journal(dir), "{\"2\":{\"volu".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        SettingsManager reopened = new SettingsManager(false, dir);
+        assertEquals(40, reopened.getSettings(1).getVolume());
+        assertEquals(100, reopened.getSettings(2).getVolume());
+        reopened.shutdown();
+        // the torn journal is folded into the snapshot rather than appended to
+        assertFalse(Files.exists(journal(dir)));
+
+        SettingsManager again = new SettingsManager(true, dir);
+        assertEquals(40, again.getSettings(1).getVolume());
+        again.shutdown();
+    }
+
+    @Test
+    public void compactsAndReplaysOverTheNewSnapshot() throws IOException
+    {
+        Path dir = folder.getRoot().toPath();
+        SettingsManager manager = new SettingsManager(false, dir);
+        manager.getSettings(2).setPrefix("?");
+        // 1001 records with guild 2's, one more than compaction waits for
+        for(int i = 0; i < 1000; i++)
+        {
+            manager.getSettings(1).setVolume(i % 150);
+            manager.flush();
+        }
+        assertFalse(Files.exists(journal(dir)));
+        manager.getSettings(1).setVolume(7);
+        manager.shutdown();
+        assertEquals(1, Files.readAllLines(journal(dir)).size());
+
+        for(boolean lazy : new boolean[]{false, true})
+        {
+            SettingsManager reopened = new SettingsManager(lazy, dir);
+            assertEquals(7, reopened.getSettings(1).getVolume());
+            assertEquals("?", reopened.getSettings(2).getPrefix());
+            reopened.shutdown();
+        }
+    }
+
+    @Test
+    public void loadsALegacySettingsFile() throws IOException
+    {
+        Path dir = folder.getRoot().toPath();
+        // pretty-printed, as older versions wrote it, with the repeat mode as a boolean
+        Files.write(dir.resolve("serversettings.json"), ("{\n"
+                + "    \"111\": {\n"
+                + "        \"volume\": 25,\n"
+                + "        \"repeat\": true,\n"
+                + "        \"default_playlist\": \"chill\"\n"
+                + "    },\n"
+                + "    \"222\": {\"prefix\": \"~\"}\n"
+                + "}").getBytes(StandardCharsets.UTF_8));
+
+        for(boolean lazy : new boolean[]{false, true})
+        {
+            SettingsManager manager = new SettingsManager(lazy, dir);
+            assertEquals(25, manager.getSettings(111).getVolume());
+            assertEquals(RepeatMode.ALL, manager.getSettings(111).getRepeatMode());
+            assertEquals("chill", manager.getSettings(111).getDefaultPlaylist());
+            assertEquals("~", manager.getSettings(222).getPrefix());
+            manager.shutdown();
+        }
+        assertFalse(Files.exists(journal(dir)));
+    }
+
+    private static Path journal(Path dir)
+    {
+        return dir.resolve("serversettings.journal");
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class ConcurrentLongMapTest
+{
+    @Test
+    public void matchesHashMap()
+    {
+        Random random = new Random(3);
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        for(int i=0; i<50000; i++)
+        {
+            long key = snowflake(random.nextInt(5000));
+            int op = random.nextInt(3);
+            if(op == 0)
+                assertEquals(expected.put(key, "v"+i), map.put(key, "v"+i));
+            else if(op == 1)
+                assertEquals(expected.computeIfAbsent(key, k -> "c"+k), map.computeIfAbsent(key, k -> "c"+k));
+            else
+                assertEquals(expected.putIfAbsent(key, "p"+i), map.putIfAbsent(key, "p"+i));
+            assertEquals(expected.get(key), map.get(key));
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(map.values()));
+        assertNull(map.get(-1));
+    }
+
+    @Test
+    public void computesOncePerKey() throws Exception
+    {
+        ConcurrentLongMap<Object> map = new ConcurrentLongMap<>();
+        AtomicInteger computed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        List<Object[]> seen = new ArrayList<>();
+        for(int t=0; t<8; t++)
+        {
+            Object[] results = new Object[2000];
+            seen.add(results);
+            Thread thread = new Thread(() ->
+            {
+                try
+                {
+                    start.await();
+                }
+                catch(InterruptedException ex)
+                {
+                    return;
+                }
+                for(int i=0; i<results.length; i++)
+                    results[i] = map.computeIfAbsent(snowflake(i), k ->
+                    {
+                        computed.incrementAndGet();
+                        return new Object();
+                    });
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for(Thread thread : threads)
+            thread.join();
+        assertEquals(2000, computed.get());
+        assertEquals(2000, map.size());
+        for(Object[] results : seen)
+            for(int i=0; i<results.length; i++)
+                assertSame(map.get(snowflake(i)), results[i]);
+    }
+
+    /**
+     * Rough comparison of settings lookups against the old map types.
+     * Skipped unless run with {@code -Dbenchmark=true}.
+     */
+    @Test
+    public void lookupBenchmark()
+    {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+        int guilds = 3000, lookups = 20_000_000;
+        long[] keys = new long[guilds];
+        for(int i=0; i<guilds; i++)
+            keys[i] = snowflake(i);
+        Map<Long, Object> hashMap = new HashMap<>();
+        Map<Long, Object> concurrentMap = new ConcurrentHashMap<>();
+        ConcurrentLongMap<Object> longMap = new ConcurrentLongMap<>();
+        for(long key : keys)
+        {
+            hashMap.put(key, Boolean.TRUE);
+            concurrentMap.put(key, Boolean.TRUE);
+            longMap.put(key, Boolean.TRUE);
+        }
+        for(int round=0; round<3; round++)
+        {
+            // the loops are spelled out so each map gets its own monomorphic call site
+            long start = System.nanoTime();
+            int hits = 0;
+            for(int i=0; i<lookups; i++)
+                if(hashMap.get(keys[i % guilds]) != null)
+                    hits++;
+            report("HashMap", start, hits);
+            start = System.nanoTime();
+            hits = 0;
+            for(int i=0; i<lookups; i++)
+                if(concurrentMap.get(keys[i % guilds]) != null)
+                    hits++;
+            report("ConcurrentHashMap", start, hits);
+            start = System.nanoTime();
+            hits = 0;
+            for(int i=0; i<lookups; i++)
+                if(longMap.get(keys[i % guilds]) != null)
+                    hits++;
+            report("ConcurrentLongMap", start, hits);
+        }
+
+        // memory is measured on a larger map, so the estimate isn't lost in the noise
+        int entries = 200_000;
+        System.out.println(String.format("HashMap           ~%d bytes per guild", bytesPerEntry(entries, () ->
+        {
+            Map<Long, Object> map = new HashMap<>();
+            for(int i=0; i<entries; i++)
+                map.put(snowflake(i), Boolean.TRUE);
+            return map;
+        })));
+        System.out.println(String.format("ConcurrentHashMap ~%d bytes per guild", bytesPerEntry(entries, () ->
+        {
+            Map<Long, Object> map = new ConcurrentHashMap<>();
+            for(int i=0; i<entries; i++)
+                map.put(snowflake(i), Boolean.TRUE);
+            return map;
+        })));
+        System.out.println(String.format("ConcurrentLongMap ~%d bytes per guild", bytesPerEntry(entries, () ->
+        {
+            ConcurrentLongMap<Object> map = new ConcurrentLongMap<>();
+            for(int i=0; i<entries; i++)
+                map.put(snowflake(i), Boolean.TRUE);
+            return map;
+        })));
+    }
+
+    private static void report(String name, long start, int hits)
+    {
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println(String.format("%-17s %,6d ms for %,d lookups", name, millis, hits));
+    }
+
+    private static long bytesPerEntry(int entries, Supplier<Object> build)
+    {
+        long before = usedMemory();
+        Object map = build.get();
+        long after = usedMemory();
+        return map == null ? 0 : (after - before) / entries;
+    }
+
+    private static long usedMemory()
+    {
+        System.gc();
+        System.gc();
+        return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+    }
+
+    private static long snowflake(int i)
+    {
+        // ids created a few seconds apart, like guilds joining over time
+        return ((1_420_070_400_000L + i * 4_000L) << 22) | (i & 0x3FF);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2026
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.utils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TaskPoolTest
+{
+    @Test
+    public void countsTasksByName() throws Exception
+    {
+        TaskPool pool = new TaskPool("test", 1);
+        try
+        {
+            pool.submit("named", () -> {}).get();
+            pool.submit(() -> {}).get();
+            pool.schedule(() -> "done", 1, TimeUnit.MILLISECONDS).get();
+            assertTrue(Thread.currentThread().getName(), pool.submit(() -> Thread.currentThread().getName()).get().startsWith("jmusicbot-test-"));
+            // the stats are recorded just after the future completes
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(1, TimeUnit.SECONDS));
+            assertEquals(1, stats(pool, "named").getRuns());
+            assertEquals(3, stats(pool, "test").getRuns());
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void countsOverrunsAndFailures() throws Exception
+    {
+        TaskPool pool = new TaskPool("test", 1);
+        try
+        {
+            CountDownLatch slow = new CountDownLatch(4);
+            ScheduledFuture<?> future = pool.scheduleWithFixedDelay("slow", () -> 
+            {
+                sleep(15);
+                slow.countDown();
+            }, 0, 5, TimeUnit.MILLISECONDS);
+            assertTrue(slow.await(5, TimeUnit.SECONDS));
+            future.cancel(false);
+            TaskPool.TaskStats stats = stats(pool, "slow");
+            assertTrue(stats.getOverruns() >= 3);
+            assertTrue(stats.getMaxNanos() >= TimeUnit.MILLISECONDS.toNanos(15));
+
+            pool.scheduleWithFixedDelay("failing", () -> 
+            {
+                throw new IllegalStateException();
+            }, 0, 1, TimeUnit.MILLISECONDS);
+            for(int i=0; i<100 && stats(pool, "failing").getFailures() == 0; i++)
+                sleep(10);
+            assertEquals(1, stats(pool, "failing").getFailures());
+            assertEquals(1, stats(pool, "failing").getRuns());
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void measuresLateness() throws Exception
+    {
+        TaskPool pool = new TaskPool("test", 1);
+        try
+        {
+            pool.submit("blocker", () -> sleep(50));
+            pool.submit("behind", () -> {}).get();
+            // the stats are recorded just after the future completes
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(1, TimeUnit.SECONDS));
+            assertTrue(stats(pool, "behind").getMaxLateNanos() >= TimeUnit.MILLISECONDS.toNanos(30));
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void removesCancelledTasks()
+    {
+        TaskPool pool = new TaskPool("test", 1);
+        try
+        {
+            ScheduledFuture<?> future = pool.schedule("later", () -> {}, 1, TimeUnit.HOURS);
+            assertEquals(1, pool.getQueueDepth());
+            future.cancel(false);
+            assertEquals(0, pool.getQueueDepth());
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    private static TaskPool.TaskStats stats(TaskPool pool, String name)
+    {
+        return pool.getStats().stream().filter(s -> s.getName().equals(name)).findFirst().orElseThrow(AssertionError::new);
+    }
+
+    private static void sleep(long millis)
+    {
+        try
+        {
+            Thread.sleep(millis);
+        }
+        catch(InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}